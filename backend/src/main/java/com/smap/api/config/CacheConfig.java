@@ -1,9 +1,88 @@
 package com.smap.api.config;
 
+import com.smap.api.domain.dto.BarangResponse;
+import com.smap.api.domain.dto.UserResponse;
+import com.smap.api.domain.projection.UserAccount;
+import com.smap.api.service.BarangFacetService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JacksonJsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.type.TypeFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
+
+    public static final String BARANG = "barang";
+    public static final String USERS = "users";
+    public static final String USER_ACCOUNTS = "userAccounts";
+
+    // Bumped whenever a cached type changes shape, so old Redis entries are simply never read again
+    private static final String KEY_PREFIX = "smap:v3:";
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+            StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        JsonMapper mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        TypeFactory types = mapper.getTypeFactory();
+
+        // L1 TTLs stay short: they bound staleness if an invalidation message is ever missed
+        Map<String, TwoLevelCacheManager.CacheSpec> specs = new LinkedHashMap<>();
+        specs.put(BARANG, new TwoLevelCacheManager.CacheSpec(
+                types.constructType(BarangResponse.class), 5_000, Duration.ofMinutes(1), Duration.ofMinutes(30)));
+        specs.put(USERS, new TwoLevelCacheManager.CacheSpec(
+                types.constructType(UserResponse.class), 1_000, Duration.ofMinutes(1), Duration.ofMinutes(30)));
+        // Holds the bcrypt password hash, so it stays in process memory and never reaches shared Redis
+        specs.put(USER_ACCOUNTS, new TwoLevelCacheManager.CacheSpec(
+                types.constructType(UserAccount.class), 1_000, Duration.ofSeconds(30), null));
+        specs.put(BarangFacetService.CACHE_NAME, new TwoLevelCacheManager.CacheSpec(
+                types.constructMapType(LinkedHashMap.class, String.class, Long.class), 16,
+                Duration.ofSeconds(30), Duration.ofMinutes(30)));
+
+        Map<String, RedisCacheConfiguration> remoteConfigs = new LinkedHashMap<>();
+        specs.forEach((name, spec) -> {
+            if (!spec.isLocalOnly()) {
+                remoteConfigs.put(name, RedisCacheConfiguration.defaultCacheConfig()
+                        .entryTtl(spec.remoteTtl())
+                        .disableCachingNullValues()
+                        .computePrefixWith(cacheName -> KEY_PREFIX + cacheName + "::")
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                                new JacksonJsonRedisSerializer<Object>(mapper, spec.valueType()))));
+            }
+        });
+        RedisCacheManager remoteCacheManager = RedisCacheManager.builder(connectionFactory)
+                .withInitialCacheConfigurations(remoteConfigs)
+                .disableCreateOnMissingCache()
+                .build();
+        remoteCacheManager.initializeCaches();
+
+        return new TwoLevelCacheManager(specs, remoteCacheManager, redisTemplate, meterRegistry);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+            TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
 }
@@ -8,6 +8,7 @@ import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.net.URI;
 
@@ -17,6 +18,9 @@ public class MinioConfig {
         @Value("${smap.minio.url}")
         private String minioUrl;
 
+        @Value("${smap.minio.public-url}")
+        private String minioPublicUrl;
+
         @Value("${smap.minio.access-key}")
         private String accessKey;
 
@@ -33,4 +37,19 @@ public class MinioConfig {
                                 .forcePathStyle(true)
                                 .build();
         }
+
+        /**
+         * Signs against the public URL, because presigned links are opened by the browser and the
+         * host is part of the signature.
+         */
+        @Bean
+        public S3Presigner s3Presigner() {
+                return S3Presigner.builder()
+                                .endpointOverride(URI.create(minioPublicUrl))
+                                .region(Region.US_EAST_1)
+                                .credentialsProvider(StaticCredentialsProvider.create(
+                                                AwsBasicCredentials.create(accessKey, secretKey)))
+                                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                                .build();
+        }
 }
@@ -0,0 +1,142 @@
+package com.smap.api.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Bounded in-process cache (L1) in front of a shared Redis cache (L2). Reads fall through
+ * L1 -> L2 -> loader and backfill L1 on the way out. Evictions hit both tiers and are broadcast
+ * so the other replicas drop their L1 copy; puts are not broadcast because a put only follows a
+ * miss, and the eviction that caused the miss was already broadcast. Without a remote cache the
+ * values only ever live in process memory.
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final Consumer<String> invalidationPublisher;
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+
+    public TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> local, Cache remote,
+            Consumer<String> invalidationPublisher, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+        this.l1Hits = requests(meterRegistry, "l1_hit");
+        this.l2Hits = requests(meterRegistry, "l2_hit");
+        this.misses = requests(meterRegistry, "miss");
+    }
+
+    private Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("smap.cache.gets")
+                .description("Two-level cache lookups by the tier that answered them")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = String.valueOf(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            l1Hits.increment();
+            return new SimpleValueWrapper(value);
+        }
+        ValueWrapper wrapper = remote != null ? remote.get(key) : null;
+        if (wrapper != null && wrapper.get() != null) {
+            l2Hits.increment();
+            local.put(localKey, wrapper.get());
+            return wrapper;
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value for key '" + key + "' in cache '" + name + "' is not of type " + type.getName());
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        if (remote != null) {
+            remote.put(key, value);
+        }
+        local.put(String.valueOf(key), value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = String.valueOf(key);
+        if (remote != null) {
+            remote.evict(key);
+        }
+        local.invalidate(localKey);
+        invalidationPublisher.accept(localKey);
+    }
+
+    @Override
+    public void clear() {
+        if (remote != null) {
+            remote.clear();
+        }
+        local.invalidateAll();
+        invalidationPublisher.accept(null);
+    }
+
+    void evictLocal(String key) {
+        local.invalidate(key);
+    }
+
+    void clearLocal() {
+        local.invalidateAll();
+    }
+}
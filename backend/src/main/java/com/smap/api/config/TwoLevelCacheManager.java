@@ -0,0 +1,99 @@
+package com.smap.api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import tools.jackson.databind.JavaType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Owns the fixed set of {@link TwoLevelCache}s and the Redis pub/sub channel used to keep the
+ * L1 tier of every replica in line. Messages are {@code nodeId|cacheName|key}, with an empty key
+ * meaning "clear"; a node ignores its own messages since it already applied the change locally.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "smap:cache:invalidation";
+
+    /**
+     * A {@code null} remote TTL keeps the cache in the local tier only, for values that must not
+     * be written to the shared Redis.
+     */
+    public record CacheSpec(JavaType valueType, long localMaxSize, Duration localTtl, Duration remoteTtl) {
+
+        public boolean isLocalOnly() {
+            return remoteTtl == null;
+        }
+    }
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final Map<String, TwoLevelCache> caches = new LinkedHashMap<>();
+
+    public TwoLevelCacheManager(Map<String, CacheSpec> specs, RedisCacheManager remoteCacheManager,
+            StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        specs.forEach((name, spec) -> {
+            com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                    .maximumSize(spec.localMaxSize())
+                    .expireAfterWrite(spec.localTtl())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, local, name, "tier", "l1");
+            Cache remote = spec.isLocalOnly() ? null : remoteCacheManager.getCache(name);
+            caches.put(name, new TwoLevelCache(name, local, remote, key -> publish(name, key), meterRegistry));
+        });
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.get(name);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private void publish(String cacheName, String key) {
+        String message = nodeId + "|" + cacheName + "|" + (key != null ? key : "");
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (RuntimeException ex) {
+            // Peers fall back to their L1 TTL; the write itself already succeeded
+            log.warn("Failed to broadcast invalidation for cache {}: {}", cacheName, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts[2].isEmpty()) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(parts[2]);
+        }
+    }
+}
@@ -1,16 +1,35 @@
 package com.smap.api.controller;
 
 import com.smap.api.domain.dto.ApiResponse;
+import com.smap.api.domain.dto.AssetEventResponse;
+import com.smap.api.domain.dto.BarangBulkUpdateRequest;
+import com.smap.api.domain.dto.BarangBulkUpdateResponse;
+import com.smap.api.domain.dto.BarangFacetResponse;
+import com.smap.api.domain.dto.BarangFilter;
+import com.smap.api.domain.dto.BarangImportResponse;
 import com.smap.api.domain.dto.BarangRequest;
 import com.smap.api.domain.dto.BarangResponse;
+import com.smap.api.domain.dto.BarangSearchResponse;
+import com.smap.api.domain.dto.BarcodeLookupRequest;
+import com.smap.api.domain.dto.CursorPagedResponse;
 import com.smap.api.domain.dto.PagedResponse;
+import com.smap.api.domain.projection.BarangListItem;
+import com.smap.api.service.BarangBulkUpdateService;
+import com.smap.api.service.BarangImportService;
 import com.smap.api.service.BarangService;
+import com.smap.api.service.EntityTags;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/barang")
@@ -18,6 +37,8 @@ import org.springframework.web.bind.annotation.*;
 public class BarangController {
 
     private final BarangService barangService;
+    private final BarangImportService barangImportService;
+    private final BarangBulkUpdateService barangBulkUpdateService;
 
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
@@ -25,16 +46,82 @@ public class BarangController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-        PagedResponse<BarangResponse> response = barangService.getAllBarang(page, size, sortDir, sortBy);
+            @RequestParam(defaultValue = "desc") String sortDir,
+            BarangFilter filter) {
+        PagedResponse<BarangResponse> response = barangService.getAllBarang(page, size, sortDir, sortBy, filter);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data barang"));
+    }
+
+    @GetMapping(params = { "view=grid", "!after" })
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<PagedResponse<BarangListItem>>> getAllBarangGrid(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            BarangFilter filter) {
+        PagedResponse<BarangListItem> response = barangService.getAllBarangListItems(page, size, sortDir, sortBy,
+                filter);
         return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data barang"));
     }
 
+    @GetMapping("/facets")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<BarangFacetResponse>> getFacets(BarangFilter filter) {
+        BarangFacetResponse response = barangService.getFacets(filter);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat facet barang"));
+    }
+
+    @GetMapping(params = "after")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<CursorPagedResponse<BarangResponse>>> getAllBarangKeyset(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        CursorPagedResponse<BarangResponse> response = barangService.getAllBarangKeyset(after, size, sortDir, sortBy,
+                withTotal);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data barang"));
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<CursorPagedResponse<BarangSearchResponse>>> searchBarang(
+            @RequestParam String q,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size) {
+        CursorPagedResponse<BarangSearchResponse> response = barangService.searchBarang(q, after, size);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil mencari data barang"));
+    }
+
+    @GetMapping("/by-barcode/{code}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<List<BarangResponse>>> getBarangByBarcode(@PathVariable String code) {
+        List<BarangResponse> response = barangService.findByBarcode(code);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat barang berdasarkan barcode"));
+    }
+
+    @PostMapping("/by-barcode")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<Map<String, List<BarangResponse>>>> getBarangByBarcodes(
+            @Valid @RequestBody BarcodeLookupRequest request) {
+        Map<String, List<BarangResponse>> response = barangService.findByBarcodes(request.getCodes());
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat barang berdasarkan barcode"));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
-    public ResponseEntity<ApiResponse<BarangResponse>> getBarangById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<BarangResponse>> getBarangById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String versionTag = barangService.getBarangVersionTag(id);
+        String etag = EntityTags.weak(versionTag);
+        if (EntityTags.matches(ifNoneMatch, versionTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         BarangResponse response = barangService.getBarangById(id);
-        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat detail barang"));
+        return ResponseEntity.ok().eTag(etag)
+                .body(ApiResponse.success(response, "Berhasil memuat detail barang"));
     }
 
     @PostMapping
@@ -45,14 +132,31 @@ public class BarangController {
                 .body(ApiResponse.success(response, "Berhasil menambahkan barang"));
     }
 
+    @PostMapping(value = "/import", consumes = { "multipart/form-data" })
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<BarangImportResponse>> importBarang(@RequestPart("file") MultipartFile file,
+            Authentication authentication) {
+        BarangImportResponse response = barangImportService.importCsv(file, authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success(response, "Import barang selesai"));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
     public ResponseEntity<ApiResponse<BarangResponse>> updateBarang(
-            @PathVariable Long id, @Valid @RequestBody BarangRequest request) {
-        BarangResponse response = barangService.updateBarang(id, request);
+            @PathVariable Long id, @Valid @RequestBody BarangRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        BarangResponse response = barangService.updateBarang(id, request, ifMatch);
         return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memperbarui barang"));
     }
 
+    @PatchMapping("/bulk")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<BarangBulkUpdateResponse>> bulkUpdateBarang(
+            @RequestBody BarangBulkUpdateRequest request, Authentication authentication) {
+        BarangBulkUpdateResponse response = barangBulkUpdateService.bulkUpdate(request, authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memperbarui barang secara massal"));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN')")
     public ResponseEntity<ApiResponse<Void>> deleteBarang(@PathVariable Long id) {
@@ -60,6 +164,16 @@ public class BarangController {
         return ResponseEntity.ok(ApiResponse.success(null, "Berhasil menghapus barang"));
     }
 
+    @GetMapping("/{id}/timeline")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<CursorPagedResponse<AssetEventResponse>>> getTimeline(
+            @PathVariable Long id,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPagedResponse<AssetEventResponse> response = barangService.getTimeline(id, after, size);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat riwayat barang"));
+    }
+
     @GetMapping("/{id}/history-peminjaman")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
     public ResponseEntity<ApiResponse<PagedResponse<com.smap.api.domain.dto.PeminjamanResponse>>> getHistoryPeminjaman(
@@ -1,30 +1,59 @@
 package com.smap.api.controller;
 
 import com.smap.api.domain.dto.ApiResponse;
+import com.smap.api.domain.dto.DirectUploadRequest;
+import com.smap.api.domain.dto.DirectUploadResponse;
+import com.smap.api.service.DirectUploadService;
 import com.smap.api.service.FileStorageService;
+import com.smap.api.service.ObjectCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.HttpHeaders;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/files")
 @RequiredArgsConstructor
 public class FileController {
 
+    private static final Path UPLOAD_ROOT = Paths.get("uploads");
+    // Names written by FileStorageService: SHA-256 of the content, optionally a rendition suffix
+    private static final Pattern CONTENT_ADDRESSED =
+            Pattern.compile("([0-9a-f]{64}(?:-thumb|-medium)?)\\.[A-Za-z0-9]+");
+    // Below this, copying through the response buffer is cheaper than setting up sendfile
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final FileStorageService fileStorageService;
+    private final ObjectCache objectCache;
+    private final DirectUploadService directUploadService;
 
     @PostMapping("/upload")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
@@ -40,26 +69,103 @@ public class FileController {
                 .body(ApiResponse.success(responseData, "Berhasil mengunggah file"));
     }
 
+    /**
+     * Issues a presigned PUT so the browser uploads straight to the bucket. The file can be attached
+     * once {@link #completeDirectUpload} has verified it.
+     */
+    @PostMapping("/uploads")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<DirectUploadResponse>> createDirectUpload(
+            @Valid @RequestBody DirectUploadRequest request, Authentication authentication) {
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        DirectUploadResponse response = directUploadService.issue(request, userDetails.getUsername());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success(response, "Berhasil membuat URL unggahan"));
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<Map<String, String>>> completeDirectUpload(@PathVariable String uploadId,
+            Authentication authentication) {
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        String fileUrl = directUploadService.complete(uploadId, userDetails.getUsername());
+
+        Map<String, String> responseData = new HashMap<>();
+        responseData.put("url", fileUrl);
+
+        return ResponseEntity.ok(ApiResponse.success(responseData, "Berhasil memverifikasi file"));
+    }
+
+    /**
+     * Serves a local upload with validators and range support. Content-addressed names never change
+     * content and are cached as immutable.
+     */
     @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> getFile(@PathVariable String fileName) {
+    public ResponseEntity<Resource> getFile(@PathVariable String fileName, HttpServletRequest request,
+            WebRequest webRequest) {
         try {
-            Path filePath = Paths.get("uploads").resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists()) {
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "application/octet-stream";
-                }
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
+            Path root = UPLOAD_ROOT.toAbsolutePath().normalize();
+            Path filePath = root.resolve(fileName).normalize();
+            if (!filePath.startsWith(root) || !Files.isRegularFile(filePath)) {
                 return ResponseEntity.notFound().build();
             }
+
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            Matcher contentAddressed = CONTENT_ADDRESSED.matcher(filePath.getFileName().toString());
+            return serve(filePath, size, lastModified,
+                    contentAddressed.matches() ? contentAddressed.group(1) : null, request, webRequest);
         } catch (Exception ex) {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Serves an uploaded object from the bucket through the local disk cache, so repeated views do
+     * not go to MinIO. Upload keys never change content, so every response is immutable.
+     */
+    @GetMapping("/objects/{key:.+}")
+    public ResponseEntity<Resource> getObject(@PathVariable String key, HttpServletRequest request,
+            WebRequest webRequest) {
+        ObjectCache.CachedObject object = objectCache.get(key);
+        String tag = key.substring(0, key.lastIndexOf('.'));
+        return serve(object.path(), object.size(), object.lastModified(), tag, request, webRequest);
+    }
+
+    /**
+     * Spring MVC turns a Range header on a {@link Resource} body into a 206; a plain GET of a large
+     * file is handed to the container's sendfile, so the bytes go from the page cache to the socket
+     * without passing through the JVM. {@code immutableTag} is the content hash for files whose name
+     * pins their content, or {@code null} to validate by size and modification time.
+     */
+    private ResponseEntity<Resource> serve(Path filePath, long size, long lastModified, String immutableTag,
+            HttpServletRequest request, WebRequest webRequest) {
+        boolean immutable = immutableTag != null;
+        String etag = "\"" + (immutable ? immutableTag
+                : Long.toHexString(size) + "-" + Long.toHexString(lastModified)) + "\"";
+
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        String fileName = filePath.getFileName().toString();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(immutable ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                        : CacheControl.noCache())
+                .contentType(MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+
+        if (HttpMethod.GET.matches(request.getMethod()) && request.getHeader(HttpHeaders.RANGE) == null
+                && size >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, filePath.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return response.contentLength(size).build();
+        }
+        return response.body(new FileSystemResource(filePath));
+    }
 }
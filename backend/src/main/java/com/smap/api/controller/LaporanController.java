@@ -1,16 +1,25 @@
 package com.smap.api.controller;
 
+import com.smap.api.domain.dto.ApiResponse;
+import com.smap.api.domain.dto.LaporanFilter;
+import com.smap.api.domain.dto.ReportJobRequest;
+import com.smap.api.domain.dto.ReportJobResponse;
+import com.smap.api.domain.entity.ReportJob;
 import com.smap.api.service.LaporanService;
+import com.smap.api.service.ReportJobService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
 
 @RestController
 @RequestMapping("/laporan")
@@ -18,16 +27,52 @@ import org.springframework.web.bind.annotation.RestController;
 public class LaporanController {
 
     private final LaporanService laporanService;
+    private final ReportJobService reportJobService;
 
-    @GetMapping("/barang/csv")
+    @GetMapping("/{dataset:barang|peminjaman|perawatan}/{format:csv|xlsx}")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
-    public ResponseEntity<Resource> exportDaftarBarangCsv() {
-        String filename = "laporan_master_barang.csv";
-        InputStreamResource file = new InputStreamResource(laporanService.exportDaftarBarangCsv());
+    public ResponseEntity<StreamingResponseBody> exportLaporan(@PathVariable String dataset,
+            @PathVariable String format, @ModelAttribute LaporanFilter filter) {
+        filter.validate();
+        ReportJob.ReportType type = ReportJob.ReportType.of(
+                ReportJob.Dataset.valueOf(dataset.toUpperCase()), ReportJob.Format.valueOf(format.toUpperCase()));
+        String filename = type.getDataset().getFileName() + "." + type.getFormat().getExtension();
+        StreamingResponseBody body = out -> laporanService.export(type, filter, out, rows -> {
+        });
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                .contentType(MediaType.parseMediaType("application/csv"))
-                .body(file);
+                .contentType(MediaType.parseMediaType(type.getFormat() == ReportJob.Format.CSV
+                        ? "application/csv"
+                        : type.getFormat().getContentType()))
+                .body(body);
+    }
+
+    @PostMapping("/jobs")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<ReportJobResponse>> submitJob(@Valid @RequestBody ReportJobRequest request) {
+        ReportJobResponse response = reportJobService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(response, "Laporan sedang diproses"));
+    }
+
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<ReportJobResponse>> getJob(@PathVariable Long id) {
+        ReportJobResponse response = reportJobService.getJob(id);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat status laporan"));
+    }
+
+    @GetMapping("/jobs/{id}/download")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<Resource> downloadJob(@PathVariable Long id) {
+        ReportJobService.ReportDownload download = reportJobService.download(id);
+        if (download.file() == null) {
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(download.redirectUrl())).build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + download.fileName())
+                .contentType(MediaType.parseMediaType(download.contentType()))
+                .body(new FileSystemResource(download.file()));
     }
 }
@@ -1,13 +1,17 @@
 package com.smap.api.controller;
 
 import com.smap.api.domain.dto.ApiResponse;
+import com.smap.api.domain.dto.CursorPagedResponse;
 import com.smap.api.domain.dto.PagedResponse;
 import com.smap.api.domain.dto.PeminjamanKembaliRequest;
 import com.smap.api.domain.dto.PeminjamanRequest;
 import com.smap.api.domain.dto.PeminjamanResponse;
+import com.smap.api.service.EntityTags;
+import com.smap.api.service.IdempotencyService;
 import com.smap.api.service.PeminjamanService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 public class PeminjamanController {
 
     private final PeminjamanService peminjamanService;
+    private final IdempotencyService idempotencyService;
 
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
@@ -36,23 +41,51 @@ public class PeminjamanController {
         return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data peminjaman"));
     }
 
+    @GetMapping(params = "after")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<CursorPagedResponse<PeminjamanResponse>>> getAllPeminjamanKeyset(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            Authentication authentication) {
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        CursorPagedResponse<PeminjamanResponse> response = peminjamanService.getAllPeminjamanKeyset(after, size,
+                sortDir, sortBy, withTotal, userDetails.getUsername());
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data peminjaman"));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
-    public ResponseEntity<ApiResponse<PeminjamanResponse>> getPeminjamanById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<PeminjamanResponse>> getPeminjamanById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String versionTag = peminjamanService.getPeminjamanVersionTag(id);
+        String etag = EntityTags.weak(versionTag);
+        if (EntityTags.matches(ifNoneMatch, versionTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         PeminjamanResponse response = peminjamanService.getPeminjamanById(id);
-        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat detail peminjaman"));
+        return ResponseEntity.ok().eTag(etag)
+                .body(ApiResponse.success(response, "Berhasil memuat detail peminjaman"));
     }
 
     @PostMapping("/pinjam")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
     public ResponseEntity<ApiResponse<PeminjamanResponse>> pinjamBarang(
-            @Valid @RequestBody PeminjamanRequest request, Authentication authentication) {
+            @Valid @RequestBody PeminjamanRequest request, Authentication authentication,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        PeminjamanResponse response = peminjamanService.pinjamBarang(request, userDetails.getUsername());
+        String username = userDetails.getUsername();
+        IdempotencyService.Result<PeminjamanResponse> result = idempotencyService.execute(idempotencyKey, username,
+                "peminjaman.pinjam", request, PeminjamanResponse.class, () -> peminjamanService.pinjamBarang(request, username));
 
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success(response, "Berhasil mengajukan peminjaman barang"));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.CREATED);
+        if (result.replayed()) {
+            builder.header(IdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return builder.body(ApiResponse.success(result.response(), "Berhasil mengajukan peminjaman barang"));
     }
 
     @PostMapping(value = "/{id}/kembali", consumes = { "multipart/form-data" })
@@ -61,10 +94,12 @@ public class PeminjamanController {
             @PathVariable Long id,
             @RequestPart("request") @Valid PeminjamanKembaliRequest request,
             @RequestPart(value = "file", required = false) org.springframework.web.multipart.MultipartFile file,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             Authentication authentication) {
 
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        PeminjamanResponse response = peminjamanService.kembalikanBarang(id, request, file, userDetails.getUsername());
+        PeminjamanResponse response = peminjamanService.kembalikanBarang(id, request, file, userDetails.getUsername(),
+                ifMatch);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Berhasil menyelesaikan pengembalian barang"));
     }
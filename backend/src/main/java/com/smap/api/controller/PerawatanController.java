@@ -1,13 +1,17 @@
 package com.smap.api.controller;
 
 import com.smap.api.domain.dto.ApiResponse;
+import com.smap.api.domain.dto.CursorPagedResponse;
 import com.smap.api.domain.dto.PagedResponse;
 import com.smap.api.domain.dto.PerawatanRequest;
 import com.smap.api.domain.dto.PerawatanResponse;
 import com.smap.api.domain.dto.PerawatanSelesaiRequest;
+import com.smap.api.service.EntityTags;
+import com.smap.api.service.IdempotencyService;
 import com.smap.api.service.PerawatanService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 public class PerawatanController {
 
     private final PerawatanService perawatanService;
+    private final IdempotencyService idempotencyService;
 
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
@@ -33,23 +38,49 @@ public class PerawatanController {
         return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data perawatan"));
     }
 
+    @GetMapping(params = "after")
+    @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
+    public ResponseEntity<ApiResponse<CursorPagedResponse<PerawatanResponse>>> getAllPerawatanKeyset(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        CursorPagedResponse<PerawatanResponse> response = perawatanService.getAllPerawatanKeyset(after, size, sortDir,
+                sortBy, withTotal);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data perawatan"));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
-    public ResponseEntity<ApiResponse<PerawatanResponse>> getPerawatanById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<PerawatanResponse>> getPerawatanById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String versionTag = perawatanService.getPerawatanVersionTag(id);
+        String etag = EntityTags.weak(versionTag);
+        if (EntityTags.matches(ifNoneMatch, versionTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         PerawatanResponse response = perawatanService.getPerawatanById(id);
-        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat detail perawatan"));
+        return ResponseEntity.ok().eTag(etag)
+                .body(ApiResponse.success(response, "Berhasil memuat detail perawatan"));
     }
 
     @PostMapping("/ajukan")
     @PreAuthorize("hasAnyRole('ADMIN', 'PEGAWAI')")
     public ResponseEntity<ApiResponse<PerawatanResponse>> ajukanPerawatan(
-            @Valid @RequestBody PerawatanRequest request, Authentication authentication) {
+            @Valid @RequestBody PerawatanRequest request, Authentication authentication,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
 
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        PerawatanResponse response = perawatanService.ajukanPerawatan(request, userDetails.getUsername());
+        String username = userDetails.getUsername();
+        IdempotencyService.Result<PerawatanResponse> result = idempotencyService.execute(idempotencyKey, username,
+                "perawatan.ajukan", request, PerawatanResponse.class, () -> perawatanService.ajukanPerawatan(request, username));
 
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success(response, "Berhasil mengajukan perawatan barang"));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.CREATED);
+        if (result.replayed()) {
+            builder.header(IdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return builder.body(ApiResponse.success(result.response(), "Berhasil mengajukan perawatan barang"));
     }
 
     @PostMapping("/{id}/selesai")
@@ -57,10 +88,12 @@ public class PerawatanController {
     public ResponseEntity<ApiResponse<PerawatanResponse>> selesaiPerawatan(
             @PathVariable Long id,
             @Valid @RequestBody PerawatanSelesaiRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             Authentication authentication) {
 
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        PerawatanResponse response = perawatanService.selesaiPerawatan(id, request, userDetails.getUsername());
+        PerawatanResponse response = perawatanService.selesaiPerawatan(id, request, userDetails.getUsername(),
+                ifMatch);
 
         return ResponseEntity.ok(ApiResponse.success(response, "Berhasil menyelesaikan proses perawatan barang"));
     }
@@ -1,6 +1,7 @@
 package com.smap.api.controller;
 
 import com.smap.api.domain.dto.ApiResponse;
+import com.smap.api.domain.dto.CursorPagedResponse;
 import com.smap.api.domain.dto.PagedResponse;
 import com.smap.api.domain.dto.UserRequest;
 import com.smap.api.domain.dto.UserResponse;
@@ -31,6 +32,19 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data user"));
     }
 
+    @GetMapping(params = "after")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPagedResponse<UserResponse>>> getAllUsersKeyset(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        CursorPagedResponse<UserResponse> response = userService.getAllUsersKeyset(after, size, sortDir, sortBy,
+                withTotal);
+        return ResponseEntity.ok(ApiResponse.success(response, "Berhasil memuat data user"));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<UserResponse>> getUserById(@PathVariable Long id) {
@@ -0,0 +1,42 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.domain.entity.AssetEvent;
+import com.smap.api.domain.entity.Barang;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class AssetEventResponse {
+    private Long id;
+    private AssetEvent.EventType eventType;
+    private LocalDateTime occurredAt;
+    private String actor;
+    private Barang.StatusBarang statusFrom;
+    private Barang.StatusBarang statusTo;
+    private Barang.KondisiBarang kondisiFrom;
+    private Barang.KondisiBarang kondisiTo;
+    private Long peminjamanId;
+    private Long perawatanId;
+    private String noRegister;
+    private String keterangan;
+
+    public static AssetEventResponse fromEntity(AssetEvent event) {
+        return AssetEventResponse.builder()
+                .id(event.getId())
+                .eventType(event.getEventType())
+                .occurredAt(event.getOccurredAt())
+                .actor(event.getActor())
+                .statusFrom(event.getStatusFrom())
+                .statusTo(event.getStatusTo())
+                .kondisiFrom(event.getKondisiFrom())
+                .kondisiTo(event.getKondisiTo())
+                .peminjamanId(event.getPeminjamanId())
+                .perawatanId(event.getPerawatanId())
+                .noRegister(event.getNoRegister())
+                .keterangan(event.getKeterangan())
+                .build();
+    }
+}
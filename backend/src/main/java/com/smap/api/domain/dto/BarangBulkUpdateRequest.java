@@ -0,0 +1,28 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.domain.entity.Barang;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BarangBulkUpdateRequest {
+
+    // Target rows: either an explicit id list or a filter, not both
+    private List<Long> ids;
+    private BarangFilter filter;
+
+    // Optional optimistic check per id (id -> version the client last saw)
+    private Map<Long, Long> expectedVersions;
+
+    private Barang.StatusBarang status;
+    private Barang.KondisiBarang kondisi;
+    private String lokasi;
+    private String gudang;
+    private String pemakai;
+
+    public boolean hasChanges() {
+        return status != null || kondisi != null || lokasi != null || gudang != null || pemakai != null;
+    }
+}
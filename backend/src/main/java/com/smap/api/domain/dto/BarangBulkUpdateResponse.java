@@ -0,0 +1,27 @@
+package com.smap.api.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarangBulkUpdateResponse {
+    private int requested;
+    private int updated;
+    private List<Long> updatedIds;
+    private List<Skipped> skipped;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Skipped {
+        private Long id;
+        private String reason;
+    }
+}
@@ -0,0 +1,25 @@
+package com.smap.api.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarangConflictResponse {
+    private List<Contested> contested;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Contested {
+        private Long id;
+        private String namaBarang;
+        private String status;
+    }
+}
@@ -0,0 +1,17 @@
+package com.smap.api.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarangFacetResponse {
+    // facet -> (bucket value -> number of assets)
+    private Map<String, Map<String, Long>> facets;
+}
@@ -0,0 +1,27 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.domain.entity.Barang;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+public class BarangFilter {
+    private Barang.StatusBarang status;
+    private Barang.KondisiBarang kondisi;
+    private String jenisBarang;
+    private String gudang;
+    private String lokasi;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate tglPerolehanFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate tglPerolehanTo;
+
+    public boolean isEmpty() {
+        return status == null && kondisi == null && jenisBarang == null && gudang == null && lokasi == null
+                && tglPerolehanFrom == null && tglPerolehanTo == null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.smap.api.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BarangImportResponse {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    // Capped so a badly formatted file cannot blow up the response
+    private List<RowError> errors;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private long row;
+        private String message;
+    }
+}
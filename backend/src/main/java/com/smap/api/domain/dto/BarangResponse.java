@@ -1,14 +1,18 @@
 package com.smap.api.domain.dto;
 
 import com.smap.api.domain.entity.Barang;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class BarangResponse {
     private Long id;
     private String kodeBarang;
@@ -25,6 +29,8 @@ public class BarangResponse {
     private Barang.StatusBarang status;
     private LocalDate tglPerolehan;
     private String photoUrl;
+    private String photoThumbUrl;
+    private String photoMediumUrl;
     private String barcodeProduk;
     private String barcodeSn;
     private String keterangan;
@@ -53,6 +59,8 @@ public class BarangResponse {
                 .status(barang.getStatus())
                 .tglPerolehan(barang.getTglPerolehan())
                 .photoUrl(barang.getPhotoUrl())
+                .photoThumbUrl(barang.getPhotoThumbUrl())
+                .photoMediumUrl(barang.getPhotoMediumUrl())
                 .barcodeProduk(barang.getBarcodeProduk())
                 .barcodeSn(barang.getBarcodeSn())
                 .keterangan(barang.getKeterangan())
@@ -0,0 +1,38 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.projection.BarangSearchResult;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BarangSearchResponse {
+    private Long id;
+    private String kodeBarang;
+    private String nup;
+    private String namaBarang;
+    private String merkType;
+    private String lokasi;
+    private String pemakai;
+    private Barang.KondisiBarang kondisi;
+    private Barang.StatusBarang status;
+    private String highlight;
+    private float score;
+
+    public static BarangSearchResponse fromResult(BarangSearchResult result) {
+        return BarangSearchResponse.builder()
+                .id(result.getId())
+                .kodeBarang(result.getKodeBarang())
+                .nup(result.getNup())
+                .namaBarang(result.getNamaBarang())
+                .merkType(result.getMerkType())
+                .lokasi(result.getLokasi())
+                .pemakai(result.getPemakai())
+                .kondisi(Barang.KondisiBarang.valueOf(result.getKondisi()))
+                .status(Barang.StatusBarang.valueOf(result.getStatus()))
+                .highlight(result.getHighlight())
+                .score(result.getScore())
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.smap.api.domain.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BarcodeLookupRequest {
+
+    @NotEmpty(message = "Minimal 1 barcode harus dikirim")
+    @Size(max = 500, message = "Maksimal 500 barcode per permintaan")
+    private List<String> codes;
+}
@@ -1,12 +1,16 @@
 package com.smap.api.domain.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class DashboardResponse implements Serializable {
     private long totalBarang;
     private long barangTersedia;
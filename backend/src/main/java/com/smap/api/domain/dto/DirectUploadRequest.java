@@ -0,0 +1,21 @@
+package com.smap.api.domain.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class DirectUploadRequest {
+    @NotBlank(message = "Tipe file wajib diisi")
+    private String contentType;
+
+    @NotNull(message = "Ukuran file wajib diisi")
+    @Positive(message = "Ukuran file harus lebih dari 0")
+    private Long size;
+
+    @NotBlank(message = "Hash SHA-256 file wajib diisi")
+    @Pattern(regexp = "[0-9a-fA-F]{64}", message = "Hash SHA-256 harus 64 karakter heksadesimal")
+    private String sha256;
+}
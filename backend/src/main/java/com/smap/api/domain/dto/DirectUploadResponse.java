@@ -0,0 +1,18 @@
+package com.smap.api.domain.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Builder
+public class DirectUploadResponse {
+    private String uploadId;
+    private String method;
+    private String uploadUrl;
+    // Must be sent with the PUT exactly as given; they are part of the signature
+    private Map<String, String> headers;
+    private LocalDateTime expiresAt;
+}
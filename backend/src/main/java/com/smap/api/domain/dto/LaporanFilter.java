@@ -0,0 +1,75 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Report filters. The date range applies to tgl_perolehan for barang, tgl_pinjam for peminjaman
+ * and tgl_service for perawatan; bidang is the bidang of the peminjam / pengaju and is ignored
+ * for the barang report, which has no owning bidang.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LaporanFilter {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private String bidang;
+
+    public void validate() {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BadRequestException("Tanggal awal tidak boleh setelah tanggal akhir");
+        }
+    }
+
+    public String bidangOrNull() {
+        return bidang == null || bidang.isBlank() ? null : bidang.trim();
+    }
+
+    /**
+     * Canonical form used for report job de-duplication and to replay the filter in the worker.
+     */
+    public String toParams() {
+        return "from=" + (from != null ? from : "") + "&to=" + (to != null ? to : "") + "&bidang="
+                + (bidangOrNull() != null ? URLEncoder.encode(bidangOrNull(), StandardCharsets.UTF_8) : "");
+    }
+
+    public static LaporanFilter fromParams(String params) {
+        LaporanFilter filter = new LaporanFilter();
+        if (params == null || params.isEmpty()) {
+            return filter;
+        }
+        for (String pair : params.split("&", -1)) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                continue;
+            }
+            String key = pair.substring(0, eq);
+            String value = pair.substring(eq + 1);
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (key) {
+                case "from" -> filter.setFrom(LocalDate.parse(value));
+                case "to" -> filter.setTo(LocalDate.parse(value));
+                case "bidang" -> filter.setBidang(URLDecoder.decode(value, StandardCharsets.UTF_8));
+                default -> {
+                }
+            }
+        }
+        return filter;
+    }
+}
@@ -0,0 +1,34 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.exception.BadRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor: sort column, direction, and the sort value and id
+ * of the last row of the previous page.
+ */
+public record PageCursor(String sortBy, Sort.Direction direction, String value, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Cursor tidak valid");
+            }
+            return new PageCursor(parts[0], Sort.Direction.fromString(parts[1]), parts[3], Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Cursor tidak valid", ex);
+        }
+    }
+}
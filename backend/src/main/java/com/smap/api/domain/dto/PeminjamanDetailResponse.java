@@ -2,11 +2,15 @@ package com.smap.api.domain.dto;
 
 import com.smap.api.domain.entity.Barang;
 import com.smap.api.domain.entity.PeminjamanDetail;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class PeminjamanDetailResponse {
     private Long id;
     private Long barangId;
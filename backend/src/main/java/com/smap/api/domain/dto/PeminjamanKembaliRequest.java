@@ -13,4 +13,7 @@ public class PeminjamanKembaliRequest {
     private Map<Long, Barang.KondisiBarang> kondisiKembaliMap;
 
     private String keterangan;
+
+    // Alternative to the multipart file: a berita acara already uploaded via POST /files/uploads
+    private String beritaAcaraUrl;
 }
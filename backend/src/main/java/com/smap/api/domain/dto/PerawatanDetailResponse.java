@@ -2,13 +2,17 @@ package com.smap.api.domain.dto;
 
 import com.smap.api.domain.entity.Barang;
 import com.smap.api.domain.entity.PerawatanDetail;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class PerawatanDetailResponse {
     private Long id;
     private Long barangId;
@@ -1,8 +1,10 @@
 package com.smap.api.domain.dto;
 
 import com.smap.api.domain.entity.Perawatan;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -11,6 +13,8 @@ import java.util.stream.Collectors;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class PerawatanResponse {
         private Long id;
         private String noRegister;
@@ -0,0 +1,23 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.domain.entity.ReportJob;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class ReportJobRequest {
+    @NotNull(message = "Jenis laporan wajib diisi")
+    private ReportJob.ReportType reportType;
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private String bidang;
+
+    public LaporanFilter filter() {
+        return new LaporanFilter(from, to, bidang);
+    }
+}
@@ -0,0 +1,45 @@
+package com.smap.api.domain.dto;
+
+import com.smap.api.domain.entity.ReportJob;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class ReportJobResponse {
+    private Long id;
+    private ReportJob.ReportType reportType;
+    private ReportJob.StatusJob status;
+    private long rowsWritten;
+    private Long totalRows;
+    private Integer progress;
+    private String downloadUrl;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public static ReportJobResponse fromEntity(ReportJob job, String downloadUrl) {
+        Integer progress = null;
+        if (job.getStatus() == ReportJob.StatusJob.SELESAI) {
+            progress = 100;
+        } else if (job.getTotalRows() != null && job.getTotalRows() > 0) {
+            progress = (int) Math.min(99, job.getRowsWritten() * 100 / job.getTotalRows());
+        }
+        return ReportJobResponse.builder()
+                .id(job.getId())
+                .reportType(job.getReportType())
+                .status(job.getStatus())
+                .rowsWritten(job.getRowsWritten())
+                .totalRows(job.getTotalRows())
+                .progress(progress)
+                .downloadUrl(downloadUrl)
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
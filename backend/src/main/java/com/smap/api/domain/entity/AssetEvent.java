@@ -0,0 +1,69 @@
+package com.smap.api.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * One state change of a barang. Append-only: rows are inserted by {@code AssetEventRecorder} and
+ * never updated, so the entity is read-only and carries none of the audit columns.
+ */
+@Entity
+@Immutable
+@Table(name = "asset_event")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AssetEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "barang_id", nullable = false)
+    private Long barangId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false)
+    private EventType eventType;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    private String actor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status_from")
+    private Barang.StatusBarang statusFrom;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status_to")
+    private Barang.StatusBarang statusTo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kondisi_from")
+    private Barang.KondisiBarang kondisiFrom;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kondisi_to")
+    private Barang.KondisiBarang kondisiTo;
+
+    @Column(name = "peminjaman_id")
+    private Long peminjamanId;
+
+    @Column(name = "perawatan_id")
+    private Long perawatanId;
+
+    @Column(name = "no_register")
+    private String noRegister;
+
+    @Column(columnDefinition = "TEXT")
+    private String keterangan;
+
+    public enum EventType {
+        DIBUAT, DIUBAH, KONDISI_BERUBAH, DIPINJAM, DIKEMBALIKAN, PERAWATAN_DIMULAI, PERAWATAN_SELESAI, DIHAPUS
+    }
+}
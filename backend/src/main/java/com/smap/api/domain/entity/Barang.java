@@ -62,6 +62,13 @@ public class Barang extends BaseEntity {
     @Column(name = "photo_url")
     private String photoUrl;
 
+    // Written by ImageRenditionService once the photo has been processed
+    @Column(name = "photo_thumb_url")
+    private String photoThumbUrl;
+
+    @Column(name = "photo_medium_url")
+    private String photoMediumUrl;
+
     @Column(name = "barcode_produk")
     private String barcodeProduk;
 
@@ -12,8 +12,10 @@ import lombok.*;
 @Builder
 public class PeminjamanDetail extends BaseEntity {
 
+    // Pooled sequence instead of IDENTITY so the detail rows of a transaction insert as one JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaksi_peminjaman_detail_id_gen")
+    @SequenceGenerator(name = "transaksi_peminjaman_detail_id_gen", sequenceName = "transaksi_peminjaman_detail_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
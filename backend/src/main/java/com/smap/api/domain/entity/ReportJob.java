@@ -0,0 +1,132 @@
+package com.smap.api.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "report_job")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportJob extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_type", nullable = false)
+    private ReportType reportType;
+
+    @Column(columnDefinition = "TEXT")
+    private String params;
+
+    @Column(name = "data_version", nullable = false)
+    private String dataVersion;
+
+    @Column(name = "dedup_key", nullable = false)
+    private String dedupKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatusJob status;
+
+    @Builder.Default
+    @Column(name = "rows_written", nullable = false)
+    private long rowsWritten = 0;
+
+    @Column(name = "total_rows")
+    private Long totalRows;
+
+    @Column(name = "object_key")
+    private String objectKey;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public enum ReportType {
+        BARANG_CSV(Dataset.BARANG, Format.CSV),
+        BARANG_XLSX(Dataset.BARANG, Format.XLSX),
+        PEMINJAMAN_CSV(Dataset.PEMINJAMAN, Format.CSV),
+        PEMINJAMAN_XLSX(Dataset.PEMINJAMAN, Format.XLSX),
+        PERAWATAN_CSV(Dataset.PERAWATAN, Format.CSV),
+        PERAWATAN_XLSX(Dataset.PERAWATAN, Format.XLSX);
+
+        private final Dataset dataset;
+        private final Format format;
+
+        ReportType(Dataset dataset, Format format) {
+            this.dataset = dataset;
+            this.format = format;
+        }
+
+        public Dataset getDataset() {
+            return dataset;
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public static ReportType of(Dataset dataset, Format format) {
+            return valueOf(dataset.name() + "_" + format.name());
+        }
+    }
+
+    public enum Dataset {
+        BARANG("laporan_master_barang", "Barang"),
+        PEMINJAMAN("laporan_peminjaman", "Peminjaman"),
+        PERAWATAN("laporan_perawatan", "Perawatan");
+
+        private final String fileName;
+        private final String sheetName;
+
+        Dataset(String fileName, String sheetName) {
+            this.fileName = fileName;
+            this.sheetName = sheetName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getSheetName() {
+            return sheetName;
+        }
+    }
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    public enum StatusJob {
+        ANTRE, DIPROSES, SELESAI, GAGAL
+    }
+}
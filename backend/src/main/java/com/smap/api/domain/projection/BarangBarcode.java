@@ -0,0 +1,9 @@
+package com.smap.api.domain.projection;
+
+public interface BarangBarcode {
+    Long getId();
+
+    String getBarcodeProduk();
+
+    String getBarcodeSn();
+}
@@ -0,0 +1,9 @@
+package com.smap.api.domain.projection;
+
+public interface BarangFacetCount {
+    String getFacet();
+
+    String getValue();
+
+    Long getTotal();
+}
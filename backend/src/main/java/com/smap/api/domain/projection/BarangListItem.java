@@ -0,0 +1,20 @@
+package com.smap.api.domain.projection;
+
+import com.smap.api.domain.entity.Barang;
+
+/**
+ * Grid columns of the barang list. Selected through a constructor expression, so list pages
+ * never load managed entities or the TEXT keterangan column.
+ */
+public record BarangListItem(
+        Long id,
+        String kodeBarang,
+        String nup,
+        String namaBarang,
+        String merkType,
+        String gudang,
+        String lokasi,
+        Barang.KondisiBarang kondisi,
+        Barang.StatusBarang status,
+        Long version) {
+}
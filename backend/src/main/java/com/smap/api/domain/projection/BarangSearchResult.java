@@ -0,0 +1,25 @@
+package com.smap.api.domain.projection;
+
+public interface BarangSearchResult {
+    Long getId();
+
+    String getKodeBarang();
+
+    String getNup();
+
+    String getNamaBarang();
+
+    String getMerkType();
+
+    String getLokasi();
+
+    String getPemakai();
+
+    String getKondisi();
+
+    String getStatus();
+
+    String getHighlight();
+
+    Float getScore();
+}
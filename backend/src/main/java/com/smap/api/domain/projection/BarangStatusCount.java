@@ -0,0 +1,9 @@
+package com.smap.api.domain.projection;
+
+import com.smap.api.domain.entity.Barang;
+
+public interface BarangStatusCount {
+    Barang.StatusBarang getStatus();
+
+    Long getTotal();
+}
@@ -0,0 +1,13 @@
+package com.smap.api.domain.projection;
+
+import com.smap.api.domain.entity.User;
+
+/**
+ * The slice of a user that authentication needs on every request, small enough to cache.
+ */
+public record UserAccount(String username, String password, User.Role role) {
+
+    public static UserAccount fromEntity(User user) {
+        return new UserAccount(user.getUsername(), user.getPassword(), user.getRole());
+    }
+}
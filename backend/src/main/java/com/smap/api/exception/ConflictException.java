@@ -0,0 +1,14 @@
+package com.smap.api.exception;
+
+public class ConflictException extends RuntimeException {
+    private final transient Object details;
+
+    public ConflictException(String message, Object details) {
+        super(message);
+        this.details = details;
+    }
+
+    public Object getDetails() {
+        return details;
+    }
+}
@@ -0,0 +1,26 @@
+package com.smap.api.repository;
+
+import com.smap.api.domain.entity.AssetEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AssetEventRepository extends JpaRepository<AssetEvent, Long> {
+
+    @Query(value = "SELECT * FROM asset_event WHERE barang_id = :barangId "
+            + "ORDER BY occurred_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<AssetEvent> findTimeline(@Param("barangId") Long barangId, @Param("limit") int limit);
+
+    // Row-value comparison keeps the next page a single range scan on (barang_id, occurred_at, id)
+    @Query(value = "SELECT * FROM asset_event WHERE barang_id = :barangId "
+            + "AND (occurred_at, id) < (:afterOccurredAt, :afterId) "
+            + "ORDER BY occurred_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<AssetEvent> findTimelineAfter(@Param("barangId") Long barangId,
+            @Param("afterOccurredAt") LocalDateTime afterOccurredAt, @Param("afterId") Long afterId,
+            @Param("limit") int limit);
+}
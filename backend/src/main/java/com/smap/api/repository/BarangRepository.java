@@ -1,14 +1,174 @@
 package com.smap.api.repository;
 
 import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.projection.BarangBarcode;
+import com.smap.api.domain.projection.BarangFacetCount;
+import com.smap.api.domain.projection.BarangListItem;
+import com.smap.api.domain.projection.BarangSearchResult;
+import com.smap.api.domain.projection.BarangStatusCount;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface BarangRepository extends JpaRepository<Barang, Long> {
+public interface BarangRepository extends JpaRepository<Barang, Long>, JpaSpecificationExecutor<Barang> {
     long countByDeletedFalse();
 
     long countByStatusAndDeletedFalse(Barang.StatusBarang status);
 
     long countByKondisiAndDeletedFalse(Barang.KondisiBarang kondisi);
+
+    @Query("SELECT b.status AS status, COUNT(b) AS total FROM Barang b WHERE b.deleted = false GROUP BY b.status")
+    List<BarangStatusCount> countActiveByStatus();
+
+    Window<Barang> findByDeletedFalse(ScrollPosition position, Sort sort, Limit limit);
+
+    <T> Page<T> findByDeletedFalse(Pageable pageable, Class<T> type);
+
+    /**
+     * Same value as {@link com.smap.api.service.EntityTags#of(Barang)}.
+     */
+    @Query(value = "SELECT CONCAT_WS('-', b.id, COALESCE(b.version, 0), "
+            + "LEFT(MD5(b.photo_thumb_url || '|' || b.photo_medium_url), 8)) FROM barang b "
+            + "WHERE b.id = :id AND b.is_deleted = FALSE", nativeQuery = true)
+    Optional<String> findVersionTag(@Param("id") Long id);
+
+    @Query(value = "SELECT new com.smap.api.domain.projection.BarangListItem(b.id, b.kodeBarang, b.nup, "
+            + "b.namaBarang, b.merkType, b.gudang, b.lokasi, b.kondisi, b.status, b.version) FROM Barang b "
+            + "WHERE b.deleted = false "
+            + "AND (:status IS NULL OR b.status = :status) "
+            + "AND (:kondisi IS NULL OR b.kondisi = :kondisi) "
+            + "AND (:jenisBarang IS NULL OR b.jenisBarang = :jenisBarang) "
+            + "AND (:gudang IS NULL OR b.gudang = :gudang) "
+            + "AND (:lokasi IS NULL OR b.lokasi = :lokasi) "
+            + "AND (:tglFrom IS NULL OR b.tglPerolehan >= :tglFrom) "
+            + "AND (:tglTo IS NULL OR b.tglPerolehan <= :tglTo)",
+            countQuery = "SELECT COUNT(b) FROM Barang b "
+            + "WHERE b.deleted = false "
+            + "AND (:status IS NULL OR b.status = :status) "
+            + "AND (:kondisi IS NULL OR b.kondisi = :kondisi) "
+            + "AND (:jenisBarang IS NULL OR b.jenisBarang = :jenisBarang) "
+            + "AND (:gudang IS NULL OR b.gudang = :gudang) "
+            + "AND (:lokasi IS NULL OR b.lokasi = :lokasi) "
+            + "AND (:tglFrom IS NULL OR b.tglPerolehan >= :tglFrom) "
+            + "AND (:tglTo IS NULL OR b.tglPerolehan <= :tglTo)")
+    Page<BarangListItem> findListItems(@Param("status") Barang.StatusBarang status,
+            @Param("kondisi") Barang.KondisiBarang kondisi, @Param("jenisBarang") String jenisBarang,
+            @Param("gudang") String gudang, @Param("lokasi") String lokasi, @Param("tglFrom") LocalDate tglFrom,
+            @Param("tglTo") LocalDate tglTo, Pageable pageable);
+
+    @Query("SELECT b.id AS id, b.barcodeProduk AS barcodeProduk, b.barcodeSn AS barcodeSn FROM Barang b "
+            + "WHERE b.deleted = false AND (b.barcodeProduk IS NOT NULL OR b.barcodeSn IS NOT NULL)")
+    Stream<BarangBarcode> streamBarcodes();
+
+    @Query("SELECT b.id AS id, b.barcodeProduk AS barcodeProduk, b.barcodeSn AS barcodeSn FROM Barang b "
+            + "WHERE b.id = :id AND b.deleted = false")
+    Optional<BarangBarcode> findBarcode(@Param("id") Long id);
+
+    @Query("SELECT b.id AS id, b.barcodeProduk AS barcodeProduk, b.barcodeSn AS barcodeSn FROM Barang b "
+            + "WHERE b.createdAt = :createdAt AND b.deleted = false "
+            + "AND (b.barcodeProduk IS NOT NULL OR b.barcodeSn IS NOT NULL)")
+    List<BarangBarcode> findBarcodesCreatedAt(@Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Cursor over the live catalogue for exports. Must be consumed inside a transaction so the
+     * PostgreSQL driver honours the fetch size instead of buffering the whole result set.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT b FROM Barang b WHERE b.deleted = false "
+            + "AND (:tglFrom IS NULL OR b.tglPerolehan >= :tglFrom) AND (:tglTo IS NULL OR b.tglPerolehan <= :tglTo) "
+            + "ORDER BY b.id")
+    Stream<Barang> streamForReport(@Param("tglFrom") LocalDate tglFrom, @Param("tglTo") LocalDate tglTo);
+
+    @Query("SELECT COUNT(b) FROM Barang b WHERE b.deleted = false "
+            + "AND (:tglFrom IS NULL OR b.tglPerolehan >= :tglFrom) AND (:tglTo IS NULL OR b.tglPerolehan <= :tglTo)")
+    long countForReport(@Param("tglFrom") LocalDate tglFrom, @Param("tglTo") LocalDate tglTo);
+
+    /**
+     * Changes whenever a barang row is inserted or modified (soft deletes included); each part is
+     * answered from an index.
+     */
+    @Query(value = "SELECT CONCAT_WS('-', (SELECT MAX(id) FROM barang), (SELECT MAX(updated_at) FROM barang))",
+            nativeQuery = true)
+    String findDataVersion();
+
+    @Query("SELECT b FROM Barang b WHERE b.deleted = false AND (b.barcodeProduk IN :codes OR b.barcodeSn IN :codes)")
+    List<Barang> findByBarcodes(@Param("codes") Collection<String> codes);
+
+    /**
+     * Ranked full-text + trigram search backed by the generated search columns from V8.
+     * Keyset paged on (score, id); ts_headline only runs on the rows of the returned page.
+     */
+    @Query(value = """
+            SELECT s.id AS "id", s.kode_barang AS "kodeBarang", s.nup AS "nup", s.nama_barang AS "namaBarang",
+                   s.merk_type AS "merkType", s.lokasi AS "lokasi", s.pemakai AS "pemakai",
+                   s.kondisi AS "kondisi", s.status AS "status",
+                   ts_headline('simple',
+                           concat_ws(' | ', s.nama_barang, s.merk_type, s.kode_barang, s.nup, s.lokasi, s.pemakai),
+                           websearch_to_tsquery('simple', :q),
+                           'StartSel=<mark>, StopSel=</mark>, HighlightAll=true') AS "highlight",
+                   s.score AS "score"
+            FROM (
+                SELECT b.id, b.kode_barang, b.nup, b.nama_barang, b.merk_type, b.lokasi, b.pemakai, b.kondisi, b.status,
+                       CAST(ts_rank(b.search_vector, websearch_to_tsquery('simple', :q)) * 2
+                               + word_similarity(:q, b.search_text) AS REAL) AS score
+                FROM barang b
+                WHERE b.is_deleted = FALSE
+                  AND (b.search_vector @@ websearch_to_tsquery('simple', :q) OR :q <% b.search_text)
+            ) s
+            WHERE CAST(:afterId AS BIGINT) IS NULL
+               OR (s.score, s.id) < (CAST(:afterScore AS REAL), CAST(:afterId AS BIGINT))
+            ORDER BY s.score DESC, s.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<BarangSearchResult> search(@Param("q") String q, @Param("afterScore") Float afterScore,
+            @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Bucket counts for every facet dimension in a single scan using GROUPING SETS.
+     */
+    @Query(value = """
+            SELECT CASE WHEN GROUPING(b.status) = 0 THEN 'status'
+                        WHEN GROUPING(b.kondisi) = 0 THEN 'kondisi'
+                        WHEN GROUPING(b.jenis_barang) = 0 THEN 'jenisBarang'
+                        WHEN GROUPING(b.gudang) = 0 THEN 'gudang'
+                        ELSE 'lokasi' END AS "facet",
+                   COALESCE(b.status, b.kondisi, b.jenis_barang, b.gudang, b.lokasi) AS "value",
+                   COUNT(*) AS "total"
+            FROM barang b
+            WHERE b.is_deleted = FALSE
+              AND (CAST(:status AS VARCHAR) IS NULL OR b.status = CAST(:status AS VARCHAR))
+              AND (CAST(:kondisi AS VARCHAR) IS NULL OR b.kondisi = CAST(:kondisi AS VARCHAR))
+              AND (CAST(:jenisBarang AS VARCHAR) IS NULL OR b.jenis_barang = CAST(:jenisBarang AS VARCHAR))
+              AND (CAST(:gudang AS VARCHAR) IS NULL OR b.gudang = CAST(:gudang AS VARCHAR))
+              AND (CAST(:lokasi AS VARCHAR) IS NULL OR b.lokasi = CAST(:lokasi AS VARCHAR))
+              AND (CAST(:tglFrom AS DATE) IS NULL OR b.tgl_perolehan >= CAST(:tglFrom AS DATE))
+              AND (CAST(:tglTo AS DATE) IS NULL OR b.tgl_perolehan <= CAST(:tglTo AS DATE))
+            GROUP BY GROUPING SETS ((b.status), (b.kondisi), (b.jenis_barang), (b.gudang), (b.lokasi))
+            """, nativeQuery = true)
+    List<BarangFacetCount> countFacets(@Param("status") String status, @Param("kondisi") String kondisi,
+            @Param("jenisBarang") String jenisBarang, @Param("gudang") String gudang,
+            @Param("lokasi") String lokasi, @Param("tglFrom") LocalDate tglFrom, @Param("tglTo") LocalDate tglTo);
 }
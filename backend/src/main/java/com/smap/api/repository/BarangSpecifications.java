@@ -0,0 +1,44 @@
+package com.smap.api.repository;
+
+import com.smap.api.domain.dto.BarangFilter;
+import com.smap.api.domain.entity.Barang;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BarangSpecifications {
+
+    private BarangSpecifications() {
+    }
+
+    public static Specification<Barang> matches(BarangFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isFalse(root.get("deleted")));
+            if (filter.getStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.getStatus()));
+            }
+            if (filter.getKondisi() != null) {
+                predicates.add(cb.equal(root.get("kondisi"), filter.getKondisi()));
+            }
+            if (filter.getJenisBarang() != null) {
+                predicates.add(cb.equal(root.get("jenisBarang"), filter.getJenisBarang()));
+            }
+            if (filter.getGudang() != null) {
+                predicates.add(cb.equal(root.get("gudang"), filter.getGudang()));
+            }
+            if (filter.getLokasi() != null) {
+                predicates.add(cb.equal(root.get("lokasi"), filter.getLokasi()));
+            }
+            if (filter.getTglPerolehanFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("tglPerolehan"), filter.getTglPerolehanFrom()));
+            }
+            if (filter.getTglPerolehanTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("tglPerolehan"), filter.getTglPerolehanTo()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
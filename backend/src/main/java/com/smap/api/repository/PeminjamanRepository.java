@@ -1,14 +1,27 @@
 package com.smap.api.repository;
 
 import com.smap.api.domain.entity.Peminjaman;
+import com.smap.api.domain.entity.PeminjamanDetail;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PeminjamanRepository extends JpaRepository<Peminjaman, Long> {
@@ -16,9 +29,69 @@ public interface PeminjamanRepository extends JpaRepository<Peminjaman, Long> {
 
     Page<Peminjaman> findByPeminjamAndDeletedFalse(com.smap.api.domain.entity.User peminjam, Pageable pageable);
 
+    Window<Peminjaman> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    Window<Peminjaman> findByPeminjamAndDeletedFalse(com.smap.api.domain.entity.User peminjam,
+            ScrollPosition position, Sort sort, Limit limit);
+
+    long countByPeminjamAndDeletedFalse(com.smap.api.domain.entity.User peminjam);
+
+    /**
+     * Version tag of the whole PeminjamanResponse graph: the loan, its details, their barang and
+     * both users. Any update to one of those rows bumps a version and therefore the tag.
+     */
+    @Query(value = "SELECT CONCAT_WS('-', p.id, COALESCE(p.version, 0), COUNT(d.id), "
+            + "COALESCE(SUM(d.version), 0) + COALESCE(SUM(b.version), 0), "
+            + "COALESCE(u1.version, 0), COALESCE(u2.version, 0)) "
+            + "FROM transaksi_peminjaman p "
+            + "LEFT JOIN transaksi_peminjaman_detail d ON d.peminjaman_id = p.id "
+            + "LEFT JOIN barang b ON b.id = d.barang_id "
+            + "LEFT JOIN users u1 ON u1.id = p.peminjam_id "
+            + "LEFT JOIN users u2 ON u2.id = p.penanggung_jawab_id "
+            + "WHERE p.id = :id AND p.is_deleted = FALSE "
+            + "GROUP BY p.id, p.version, u1.version, u2.version", nativeQuery = true)
+    Optional<String> findVersionTag(@Param("id") Long id);
+
+    /**
+     * Second phase of the list and history endpoints: the page query selects the rows, this loads
+     * their users, details and barang in one statement so mapping a page does not go row by row.
+     */
+    @EntityGraph(attributePaths = { "peminjam", "penanggungJawab", "detailBarang", "detailBarang.barang" })
+    @Query("SELECT p FROM Peminjaman p WHERE p.id IN :ids")
+    List<Peminjaman> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT DISTINCT p FROM Peminjaman p JOIN p.detailBarang pd WHERE pd.barang.id = :barangId AND p.deleted = false ORDER BY p.createdAt DESC")
     List<Peminjaman> findHistoryByBarangId(@Param("barangId") Long barangId);
 
     @Query("SELECT DISTINCT p FROM Peminjaman p JOIN p.detailBarang pd WHERE pd.barang.id = :barangId AND p.deleted = false")
     Page<Peminjaman> findHistoryByBarangIdPaged(@Param("barangId") Long barangId, Pageable pageable);
+
+    /**
+     * One row per detail line with its header, peminjam and barang fetched in the same query, read
+     * through a server-side cursor for the report exports.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT d FROM PeminjamanDetail d JOIN FETCH d.peminjaman t JOIN FETCH t.peminjam u JOIN FETCH d.barang b "
+            + "WHERE t.deleted = false AND d.deleted = false "
+            + "AND (:tglFrom IS NULL OR t.tglPinjam >= :tglFrom) AND (:tglTo IS NULL OR t.tglPinjam <= :tglTo) "
+            + "AND (:bidang IS NULL OR u.bidang = :bidang) "
+            + "ORDER BY t.id, d.id")
+    Stream<PeminjamanDetail> streamDetailsForReport(@Param("tglFrom") LocalDate tglFrom, @Param("tglTo") LocalDate tglTo,
+            @Param("bidang") String bidang);
+
+    @Query("SELECT COUNT(d) FROM PeminjamanDetail d JOIN d.peminjaman t JOIN t.peminjam u "
+            + "WHERE t.deleted = false AND d.deleted = false "
+            + "AND (:tglFrom IS NULL OR t.tglPinjam >= :tglFrom) AND (:tglTo IS NULL OR t.tglPinjam <= :tglTo) "
+            + "AND (:bidang IS NULL OR u.bidang = :bidang)")
+    long countDetailsForReport(@Param("tglFrom") LocalDate tglFrom, @Param("tglTo") LocalDate tglTo,
+            @Param("bidang") String bidang);
+
+    @Query(value = "SELECT CONCAT_WS('-', (SELECT MAX(id) FROM transaksi_peminjaman), (SELECT MAX(updated_at) FROM transaksi_peminjaman), "
+            + "(SELECT MAX(updated_at) FROM transaksi_peminjaman_detail), (SELECT MAX(updated_at) FROM barang), "
+            + "(SELECT MAX(updated_at) FROM users))", nativeQuery = true)
+    String findDataVersion();
 }
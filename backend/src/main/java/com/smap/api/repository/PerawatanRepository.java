@@ -1,22 +1,89 @@
 package com.smap.api.repository;
 
 import com.smap.api.domain.entity.Perawatan;
+import com.smap.api.domain.entity.PerawatanDetail;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PerawatanRepository extends JpaRepository<Perawatan, Long> {
     long countByStatusAndDeletedFalse(Perawatan.StatusPerawatan status);
 
+    Window<Perawatan> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * Version tag of the whole PerawatanResponse graph, see PeminjamanRepository#findVersionTag.
+     */
+    @Query(value = "SELECT CONCAT_WS('-', p.id, COALESCE(p.version, 0), COUNT(d.id), "
+            + "COALESCE(SUM(d.version), 0) + COALESCE(SUM(b.version), 0), "
+            + "COALESCE(u1.version, 0), COALESCE(u2.version, 0)) "
+            + "FROM transaksi_perawatan p "
+            + "LEFT JOIN transaksi_perawatan_detail d ON d.perawatan_id = p.id "
+            + "LEFT JOIN barang b ON b.id = d.barang_id "
+            + "LEFT JOIN users u1 ON u1.id = p.diajukan_oleh_id "
+            + "LEFT JOIN users u2 ON u2.id = p.penanggung_jawab_id "
+            + "WHERE p.id = :id AND p.is_deleted = FALSE "
+            + "GROUP BY p.id, p.version, u1.version, u2.version", nativeQuery = true)
+    Optional<String> findVersionTag(@Param("id") Long id);
+
+    /**
+     * Second phase of the list and history endpoints: the page query selects the rows, this loads
+     * their users, details and barang in one statement so mapping a page does not go row by row.
+     */
+    @EntityGraph(attributePaths = { "diajukanOleh", "penanggungJawab", "detailBarang", "detailBarang.barang" })
+    @Query("SELECT p FROM Perawatan p WHERE p.id IN :ids")
+    List<Perawatan> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT DISTINCT p FROM Perawatan p JOIN p.detailBarang pd WHERE pd.barang.id = :barangId AND p.deleted = false ORDER BY p.createdAt DESC")
     List<Perawatan> findHistoryByBarangId(@Param("barangId") Long barangId);
 
     @Query("SELECT DISTINCT p FROM Perawatan p JOIN p.detailBarang pd WHERE pd.barang.id = :barangId AND p.deleted = false")
     Page<Perawatan> findHistoryByBarangIdPaged(@Param("barangId") Long barangId, Pageable pageable);
+
+    /**
+     * One row per detail line with its header, diajukanOleh and barang fetched in the same query, read
+     * through a server-side cursor for the report exports.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT d FROM PerawatanDetail d JOIN FETCH d.perawatan t JOIN FETCH t.diajukanOleh u JOIN FETCH d.barang b "
+            + "WHERE t.deleted = false AND d.deleted = false "
+            + "AND (:tglFrom IS NULL OR t.tglService >= :tglFrom) AND (:tglTo IS NULL OR t.tglService <= :tglTo) "
+            + "AND (:bidang IS NULL OR u.bidang = :bidang) "
+            + "ORDER BY t.id, d.id")
+    Stream<PerawatanDetail> streamDetailsForReport(@Param("tglFrom") LocalDate tglFrom, @Param("tglTo") LocalDate tglTo,
+            @Param("bidang") String bidang);
+
+    @Query("SELECT COUNT(d) FROM PerawatanDetail d JOIN d.perawatan t JOIN t.diajukanOleh u "
+            + "WHERE t.deleted = false AND d.deleted = false "
+            + "AND (:tglFrom IS NULL OR t.tglService >= :tglFrom) AND (:tglTo IS NULL OR t.tglService <= :tglTo) "
+            + "AND (:bidang IS NULL OR u.bidang = :bidang)")
+    long countDetailsForReport(@Param("tglFrom") LocalDate tglFrom, @Param("tglTo") LocalDate tglTo,
+            @Param("bidang") String bidang);
+
+    @Query(value = "SELECT CONCAT_WS('-', (SELECT MAX(id) FROM transaksi_perawatan), (SELECT MAX(updated_at) FROM transaksi_perawatan), "
+            + "(SELECT MAX(updated_at) FROM transaksi_perawatan_detail), (SELECT MAX(updated_at) FROM barang), "
+            + "(SELECT MAX(updated_at) FROM users))", nativeQuery = true)
+    String findDataVersion();
 }
@@ -0,0 +1,60 @@
+package com.smap.api.repository;
+
+import com.smap.api.domain.entity.ReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    Optional<ReportJob> findFirstByDedupKeyAndStatusNotAndDeletedFalse(String dedupKey, ReportJob.StatusJob status);
+
+    List<ReportJob> findTop100ByStatusInAndFinishedAtBefore(Collection<ReportJob.StatusJob> statuses,
+            LocalDateTime before);
+
+    // Called from inside the export's read-only transaction, so it needs its own
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.rowsWritten = :rows, j.updatedAt = :now WHERE j.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("rows") long rows, @Param("now") LocalDateTime now);
+
+    /**
+     * Moves a job from {@code from} to {@code to}; returns 0 if another worker got there first.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = :to, j.startedAt = :now, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.status = :from")
+    int claim(@Param("id") Long id, @Param("from") ReportJob.StatusJob from, @Param("to") ReportJob.StatusJob to,
+            @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.updatedAt = :now WHERE j.id IN :ids AND j.status IN :active")
+    int touch(@Param("ids") Collection<Long> ids, @Param("active") Collection<ReportJob.StatusJob> active,
+            @Param("now") LocalDateTime now);
+
+    @Query("SELECT j.id FROM ReportJob j WHERE j.status = :status AND j.deleted = false "
+            + "AND COALESCE(j.updatedAt, j.createdAt) < :before ORDER BY j.id")
+    List<Long> findIdsIdleSince(@Param("status") ReportJob.StatusJob status, @Param("before") LocalDateTime before);
+
+    /**
+     * Fails jobs whose worker stopped reporting, e.g. because the node running it was restarted.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportJob j SET j.status = :failed, j.errorMessage = :message, j.finishedAt = :now "
+            + "WHERE j.status IN :active AND COALESCE(j.updatedAt, j.createdAt) < :before")
+    int failStale(@Param("active") Collection<ReportJob.StatusJob> active, @Param("failed") ReportJob.StatusJob failed,
+            @Param("before") LocalDateTime before, @Param("message") String message, @Param("now") LocalDateTime now);
+}
@@ -5,6 +5,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
 import java.util.Optional;
 
@@ -22,6 +26,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @EntityGraph(attributePaths = { "permissions" })
     Optional<User> findById(Long id);
 
+    @EntityGraph(attributePaths = { "permissions" })
+    Window<User> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
@@ -1,8 +1,11 @@
 package com.smap.api.security;
 
-import com.smap.api.domain.entity.User;
+import com.smap.api.config.CacheConfig;
+import com.smap.api.domain.projection.UserAccount;
 import com.smap.api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,16 +19,26 @@ import java.util.Collections;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final CacheManager cacheManager;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsernameAndDeletedFalse(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+        // Called for every authenticated request, so the account lookup is served from cache
+        Cache cache = cacheManager.getCache(CacheConfig.USER_ACCOUNTS);
+        UserAccount account = cache != null ? cache.get(username, UserAccount.class) : null;
+        if (account == null) {
+            account = userRepository.findByUsernameAndDeletedFalse(username)
+                    .map(UserAccount::fromEntity)
+                    .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+            if (cache != null) {
+                cache.put(username, account);
+            }
+        }
 
         return org.springframework.security.core.userdetails.User
-                .withUsername(user.getUsername())
-                .password(user.getPassword())
-                .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())))
+                .withUsername(account.username())
+                .password(account.password())
+                .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + account.role().name())))
                 .accountExpired(false)
                 .accountLocked(false)
                 .credentialsExpired(false)
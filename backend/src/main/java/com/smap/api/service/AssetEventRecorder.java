@@ -0,0 +1,101 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.entity.AssetEvent;
+import com.smap.api.domain.entity.Barang;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends barang state changes to asset_event inside the caller's transaction, so an event exists
+ * exactly when its change commits. Events of one operation go out as a single JDBC batch; the
+ * actor is taken from the current security context.
+ */
+@Component
+@RequiredArgsConstructor
+public class AssetEventRecorder {
+
+    private static final String INSERT_SQL = "INSERT INTO asset_event (barang_id, event_type, occurred_at, actor, "
+            + "status_from, status_to, kondisi_from, kondisi_to, peminjaman_id, perawatan_id, no_register, keterangan) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {
+            Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void record(AssetEvent.AssetEventBuilder event) {
+        record(List.of(event));
+    }
+
+    public void record(List<AssetEvent.AssetEventBuilder> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        String actor = currentActor();
+        List<Object[]> batch = new ArrayList<>(events.size());
+        for (AssetEvent.AssetEventBuilder builder : events) {
+            AssetEvent event = builder.build();
+            batch.add(new Object[] {
+                    event.getBarangId(),
+                    event.getEventType().name(),
+                    Timestamp.valueOf(event.getOccurredAt() != null ? event.getOccurredAt() : now),
+                    event.getActor() != null ? event.getActor() : actor,
+                    name(event.getStatusFrom()),
+                    name(event.getStatusTo()),
+                    name(event.getKondisiFrom()),
+                    name(event.getKondisiTo()),
+                    event.getPeminjamanId(),
+                    event.getPerawatanId(),
+                    event.getNoRegister(),
+                    event.getKeterangan() });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, INSERT_TYPES);
+    }
+
+    /**
+     * Event for an edit of a barang: KONDISI_BERUBAH when the kondisi moved, DIUBAH otherwise.
+     */
+    public static AssetEvent.AssetEventBuilder change(Long barangId, Barang.StatusBarang statusFrom,
+            Barang.StatusBarang statusTo, Barang.KondisiBarang kondisiFrom, Barang.KondisiBarang kondisiTo) {
+        return AssetEvent.builder()
+                .barangId(barangId)
+                .eventType(kondisiFrom != kondisiTo ? AssetEvent.EventType.KONDISI_BERUBAH
+                        : AssetEvent.EventType.DIUBAH)
+                .statusFrom(statusFrom)
+                .statusTo(statusTo)
+                .kondisiFrom(kondisiFrom)
+                .kondisiTo(kondisiTo);
+    }
+
+    /**
+     * DIBUAT events for rows inserted by a CSV import, which are written without returning their
+     * ids. The import stamps every row with the same created_at.
+     */
+    public int recordImported(Timestamp createdAt) {
+        return jdbcTemplate.update("INSERT INTO asset_event (barang_id, event_type, occurred_at, actor, status_to, "
+                + "kondisi_to, keterangan) "
+                + "SELECT b.id, 'DIBUAT', b.created_at, ?, b.status, b.kondisi, 'Import CSV' FROM barang b "
+                + "WHERE b.created_at = ? AND NOT EXISTS (SELECT 1 FROM asset_event e WHERE e.barang_id = b.id)",
+                currentActor(), createdAt);
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
@@ -0,0 +1,231 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.projection.BarangBarcode;
+import com.smap.api.repository.BarangRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory barcode -> barang id index for handheld scanner lookups. Barcodes are not unique
+ * (see V5), so every code maps to a set of ids. The index is warmed on startup and kept current
+ * from barang writes; each write is broadcast on a Redis channel as {@code nodeId|barang|id} (or
+ * {@code nodeId|imported|createdAt} for a CSV import) and peers reload the affected barcodes from
+ * the database. A scheduled rebuild from the table
+ * repairs anything missed while Redis was unreachable.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BarangBarcodeIndex implements MessageListener {
+
+    public static final String CHANGES_CHANNEL = "smap:barcode-index:changes";
+
+    private final BarangRepository barangRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Object lock = new Object();
+    // Replaced wholesale by a rebuild; lookups read it without locking
+    private volatile Map<String, Set<Long>> index = new ConcurrentHashMap<>();
+    // Guarded by lock: the codes each id is currently indexed under, to undo them on the next change
+    private Map<Long, List<String>> codesById = new HashMap<>();
+    // Guarded by lock: ids changed while a rebuild streams the table, reloaded once it is swapped in
+    private Set<Long> changedDuringRebuild;
+    private volatile boolean ready = false;
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANGES_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warm() {
+        rebuild();
+        ready = true;
+    }
+
+    @Scheduled(fixedDelayString = "${smap.barcode-index.rebuild-interval-ms:600000}",
+            initialDelayString = "${smap.barcode-index.rebuild-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Returns the ids registered for the code, or null when the index cannot answer
+     * (not warmed yet, or unknown code) and the caller should fall back to the database.
+     */
+    public Set<Long> lookup(String code) {
+        if (!ready) {
+            return null;
+        }
+        Set<Long> ids = index.get(code);
+        return ids == null || ids.isEmpty() ? null : Set.copyOf(ids);
+    }
+
+    /**
+     * Adds a barang found in the database to this node's index only, e.g. after a lookup fell
+     * back to the database.
+     */
+    public void register(Barang barang) {
+        Long id = barang.getId();
+        List<String> codes = barang.isDeleted() ? List.of() : codes(barang.getBarcodeProduk(), barang.getBarcodeSn());
+        AfterCommit.run(() -> apply(id, codes));
+    }
+
+    /**
+     * Indexes a created, updated or deleted barang once the transaction commits and tells the
+     * other replicas to reload it.
+     */
+    public void update(Barang barang) {
+        Long id = barang.getId();
+        List<String> codes = barang.isDeleted() ? List.of() : codes(barang.getBarcodeProduk(), barang.getBarcodeSn());
+        AfterCommit.run(() -> {
+            apply(id, codes);
+            publish("barang", String.valueOf(id));
+        });
+    }
+
+    /**
+     * Indexes the rows a CSV import inserted with the given created_at once the transaction
+     * commits, and tells the other replicas to do the same.
+     */
+    public void registerImported(Timestamp createdAt) {
+        LocalDateTime importedAt = createdAt.toLocalDateTime();
+        AfterCommit.run(() -> {
+            reloadImported(importedAt);
+            publish("imported", importedAt.toString());
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            if ("barang".equals(parts[1])) {
+                reload(Long.valueOf(parts[2]));
+            } else if ("imported".equals(parts[1])) {
+                reloadImported(LocalDateTime.parse(parts[2]));
+            }
+        } catch (RuntimeException ex) {
+            // The scheduled rebuild picks the change up instead
+            log.warn("Failed to apply barcode index change {}: {}", parts[2], ex.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        synchronized (lock) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        Map<String, Set<Long>> freshIndex = new ConcurrentHashMap<>();
+        Map<Long, List<String>> freshCodes = new HashMap<>();
+        try (Stream<BarangBarcode> barcodes = barangRepository.streamBarcodes()) {
+            barcodes.forEach(row -> put(freshIndex, freshCodes, row.getId(),
+                    codes(row.getBarcodeProduk(), row.getBarcodeSn())));
+        } catch (RuntimeException ex) {
+            synchronized (lock) {
+                changedDuringRebuild = null;
+            }
+            throw ex;
+        }
+        Set<Long> changed;
+        synchronized (lock) {
+            index = freshIndex;
+            codesById = freshCodes;
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+        changed.forEach(this::reload);
+        log.info("Barcode index built with {} barang, {} distinct barcodes", freshCodes.size(), freshIndex.size());
+    }
+
+    private void reload(Long id) {
+        List<String> codes = barangRepository.findBarcode(id)
+                .map(row -> codes(row.getBarcodeProduk(), row.getBarcodeSn()))
+                .orElse(List.of());
+        apply(id, codes);
+    }
+
+    private void reloadImported(LocalDateTime createdAt) {
+        for (BarangBarcode row : barangRepository.findBarcodesCreatedAt(createdAt)) {
+            apply(row.getId(), codes(row.getBarcodeProduk(), row.getBarcodeSn()));
+        }
+    }
+
+    private void apply(Long id, List<String> codes) {
+        synchronized (lock) {
+            put(index, codesById, id, codes);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(id);
+            }
+        }
+    }
+
+    private void publish(String kind, String value) {
+        try {
+            redisTemplate.convertAndSend(CHANGES_CHANNEL, nodeId + "|" + kind + "|" + value);
+        } catch (RuntimeException ex) {
+            // Peers catch up on their next scheduled rebuild; the write itself already succeeded
+            log.warn("Failed to broadcast barcode index change {}: {}", value, ex.getMessage());
+        }
+    }
+
+    private static void put(Map<String, Set<Long>> index, Map<Long, List<String>> codesById, Long id,
+            List<String> codes) {
+        List<String> previous = codes.isEmpty() ? codesById.remove(id) : codesById.put(id, codes);
+        if (previous != null) {
+            for (String code : previous) {
+                index.computeIfPresent(code, (key, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        for (String code : codes) {
+            index.computeIfAbsent(code, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * The codes a barang is found by: its barcodes, trimmed. Scan results are matched the same way.
+     */
+    static List<String> codes(String produk, String sn) {
+        List<String> codes = new ArrayList<>(2);
+        for (String code : new String[] {produk, sn}) {
+            if (code != null && !code.isBlank() && !codes.contains(code.trim())) {
+                codes.add(code.trim());
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,231 @@
+package com.smap.api.service;
+
+import com.smap.api.config.CacheConfig;
+import com.smap.api.domain.dto.BarangBulkUpdateRequest;
+import com.smap.api.domain.dto.BarangBulkUpdateResponse;
+import com.smap.api.domain.entity.AssetEvent;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.exception.BadRequestException;
+import com.smap.api.repository.BarangSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Applies a partial change to many barang rows with a single UPDATE ... RETURNING instead of a
+ * load/save round trip per row. The statement still bumps the version and audit columns, and
+ * rows that fail the optimistic version check or are tied to an active loan/maintenance are
+ * left untouched and reported back.
+ */
+@Service
+@RequiredArgsConstructor
+public class BarangBulkUpdateService {
+
+    private static final int MAX_ROWS = 10000;
+    private static final Set<Barang.StatusBarang> TRANSACTION_STATUSES = EnumSet.of(Barang.StatusBarang.DIPINJAM,
+            Barang.StatusBarang.DIRAWAT);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BarangFacetService barangFacetService;
+    private final CacheEvictions cacheEvictions;
+    private final DashboardCounters dashboardCounters;
+    private final AssetEventRecorder assetEventRecorder;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional
+    public BarangBulkUpdateResponse bulkUpdate(BarangBulkUpdateRequest request, String username) {
+        if (!request.hasChanges()) {
+            throw new BadRequestException("Tidak ada perubahan yang dikirim");
+        }
+        if (request.getStatus() != null && TRANSACTION_STATUSES.contains(request.getStatus())) {
+            throw new BadRequestException(
+                    "Status " + request.getStatus() + " hanya dapat diubah melalui transaksi peminjaman/perawatan");
+        }
+
+        List<Long> ids = resolveTargetIds(request);
+        if (ids.isEmpty()) {
+            return BarangBulkUpdateResponse.builder()
+                    .requested(0).updated(0).updatedIds(List.of()).skipped(List.of())
+                    .build();
+        }
+
+        Map<Long, Long> expectedVersions = request.getExpectedVersions() != null ? request.getExpectedVersions()
+                : Map.of();
+        Long[] versions = ids.stream().map(expectedVersions::get).toArray(Long[]::new);
+
+        List<String> assignments = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        addAssignment(assignments, values, "status", request.getStatus() != null ? request.getStatus().name() : null);
+        addAssignment(assignments, values, "kondisi",
+                request.getKondisi() != null ? request.getKondisi().name() : null);
+        addAssignment(assignments, values, "lokasi", request.getLokasi());
+        addAssignment(assignments, values, "gudang", request.getGudang());
+        addAssignment(assignments, values, "pemakai", request.getPemakai());
+
+        StringBuilder sql = new StringBuilder("UPDATE barang b SET ")
+                .append(String.join(", ", assignments))
+                .append(", version = b.version + 1, updated_at = ?, updated_by = ? ")
+                .append("FROM unnest(?::bigint[], ?::bigint[]) AS t(id, expected_version), barang old ")
+                // The self-join exposes the pre-update status for the dashboard counters
+                .append("WHERE b.id = t.id AND old.id = b.id AND b.is_deleted = FALSE ")
+                .append("AND (t.expected_version IS NULL OR b.version = t.expected_version) ");
+        if (request.getStatus() != null) {
+            sql.append("AND b.status NOT IN ('DIPINJAM', 'DIRAWAT') ");
+        }
+        sql.append("RETURNING b.id, old.status, b.status, old.kondisi, b.kondisi");
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<Barang.StatusBarang, Long> previousStatuses = new EnumMap<>(Barang.StatusBarang.class);
+        List<AssetEvent.AssetEventBuilder> events = new ArrayList<>();
+        List<Long> updatedIds = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            int index = 1;
+            for (String value : values) {
+                ps.setString(index++, value);
+            }
+            ps.setTimestamp(index++, now);
+            ps.setString(index++, username);
+            Array idArray = con.createArrayOf("bigint", ids.toArray(Long[]::new));
+            Array versionArray = con.createArrayOf("bigint", versions);
+            ps.setArray(index++, idArray);
+            ps.setArray(index, versionArray);
+            return ps;
+        }, (rs, rowNum) -> {
+            previousStatuses.merge(Barang.StatusBarang.valueOf(rs.getString(2)), 1L, Long::sum);
+            events.add(AssetEventRecorder.change(rs.getLong(1),
+                    Barang.StatusBarang.valueOf(rs.getString(2)), Barang.StatusBarang.valueOf(rs.getString(3)),
+                    Barang.KondisiBarang.valueOf(rs.getString(4)), Barang.KondisiBarang.valueOf(rs.getString(5)))
+                    .keterangan("Bulk update"));
+            return rs.getLong(1);
+        });
+
+        List<BarangBulkUpdateResponse.Skipped> skipped = explainSkipped(ids, new LinkedHashSet<>(updatedIds),
+                expectedVersions, request.getStatus() != null);
+
+        // Managed Barang instances loaded earlier in this persistence context are now stale
+        entityManager.clear();
+        evictFacets(request);
+        cacheEvictions.evictAfterCommit(CacheConfig.BARANG, updatedIds);
+        assetEventRecorder.record(events);
+        if (request.getStatus() != null) {
+            dashboardCounters.barangMoved(previousStatuses, request.getStatus());
+        }
+
+        return BarangBulkUpdateResponse.builder()
+                .requested(ids.size())
+                .updated(updatedIds.size())
+                .updatedIds(updatedIds)
+                .skipped(skipped)
+                .build();
+    }
+
+    private List<Long> resolveTargetIds(BarangBulkUpdateRequest request) {
+        boolean hasIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean hasFilter = request.getFilter() != null && !request.getFilter().isEmpty();
+        if (hasIds == hasFilter) {
+            throw new BadRequestException("Kirim salah satu: daftar ids atau filter");
+        }
+
+        List<Long> ids;
+        if (hasIds) {
+            ids = request.getIds().stream().filter(Objects::nonNull).distinct().toList();
+        } else {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Long> query = cb.createQuery(Long.class);
+            Root<Barang> root = query.from(Barang.class);
+            query.select(root.get("id"))
+                    .where(BarangSpecifications.matches(request.getFilter()).toPredicate(root, query, cb))
+                    .orderBy(cb.asc(root.get("id")));
+            ids = entityManager.createQuery(query).setMaxResults(MAX_ROWS + 1).getResultList();
+        }
+
+        if (ids.size() > MAX_ROWS) {
+            throw new BadRequestException("Maksimal " + MAX_ROWS + " barang per bulk update");
+        }
+        return ids;
+    }
+
+    private List<BarangBulkUpdateResponse.Skipped> explainSkipped(List<Long> ids, Set<Long> updatedIds,
+            Map<Long, Long> expectedVersions, boolean statusChange) {
+        List<Long> skippedIds = ids.stream().filter(id -> !updatedIds.contains(id)).toList();
+        if (skippedIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Object[]> current = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, version, status, is_deleted FROM barang WHERE id = ANY(?::bigint[])");
+            ps.setArray(1, con.createArrayOf("bigint", skippedIds.toArray(Long[]::new)));
+            return ps;
+        }, rs -> {
+            current.put(rs.getLong("id"), new Object[] { rs.getLong("version"), rs.getString("status"),
+                    rs.getBoolean("is_deleted") });
+        });
+
+        List<BarangBulkUpdateResponse.Skipped> skipped = new ArrayList<>();
+        for (Long id : skippedIds) {
+            Object[] row = current.get(id);
+            String reason;
+            if (row == null) {
+                reason = "Barang tidak ditemukan";
+            } else if ((Boolean) row[2]) {
+                reason = "Barang telah dihapus";
+            } else if (expectedVersions.containsKey(id) && !expectedVersions.get(id).equals(row[0])) {
+                reason = "Versi tidak cocok (data telah diubah, versi saat ini " + row[0] + ")";
+            } else if (statusChange && ("DIPINJAM".equals(row[1]) || "DIRAWAT".equals(row[1]))) {
+                reason = "Barang sedang " + row[1];
+            } else {
+                reason = "Diubah oleh proses lain";
+            }
+            skipped.add(new BarangBulkUpdateResponse.Skipped(id, reason));
+        }
+        return skipped;
+    }
+
+    private void evictFacets(BarangBulkUpdateRequest request) {
+        Set<BarangFacetService.Dimension> dimensions = EnumSet.noneOf(BarangFacetService.Dimension.class);
+        if (request.getStatus() != null) {
+            dimensions.add(BarangFacetService.Dimension.STATUS);
+        }
+        if (request.getKondisi() != null) {
+            dimensions.add(BarangFacetService.Dimension.KONDISI);
+        }
+        if (request.getLokasi() != null) {
+            dimensions.add(BarangFacetService.Dimension.LOKASI);
+        }
+        if (request.getGudang() != null) {
+            dimensions.add(BarangFacetService.Dimension.GUDANG);
+        }
+        barangFacetService.evict(dimensions);
+    }
+
+    private static void addAssignment(List<String> assignments, List<String> values, String column, String value) {
+        if (value != null) {
+            assignments.add(column + " = ?");
+            values.add(value);
+        }
+    }
+}
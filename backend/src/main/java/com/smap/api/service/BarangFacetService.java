@@ -0,0 +1,140 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.BarangFacetResponse;
+import com.smap.api.domain.dto.BarangFilter;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.projection.BarangFacetCount;
+import com.smap.api.repository.BarangRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Facet bucket counts for the barang catalogue. The unfiltered counts are cached per
+ * dimension, so a write that only moves an asset between statuses leaves the other
+ * dimensions cached. Filtered counts are always computed live in a single grouped scan.
+ */
+@Service
+@RequiredArgsConstructor
+public class BarangFacetService {
+
+    public static final String CACHE_NAME = "barangFacets";
+    private static final String EMPTY_BUCKET = "-";
+
+    private final BarangRepository barangRepository;
+    private final CacheManager cacheManager;
+
+    public enum Dimension {
+        STATUS("status", Barang::getStatus),
+        KONDISI("kondisi", Barang::getKondisi),
+        JENIS_BARANG("jenisBarang", Barang::getJenisBarang),
+        GUDANG("gudang", Barang::getGudang),
+        LOKASI("lokasi", Barang::getLokasi);
+
+        private final String key;
+        private final Function<Barang, Object> extractor;
+
+        Dimension(String key, Function<Barang, Object> extractor) {
+            this.key = key;
+            this.extractor = extractor;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Object valueOf(Barang barang) {
+            return extractor.apply(barang);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public BarangFacetResponse getFacets(BarangFilter filter) {
+        if (!filter.isEmpty()) {
+            return BarangFacetResponse.builder().facets(countFacets(filter)).build();
+        }
+
+        Cache cache = cache();
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        for (Dimension dimension : Dimension.values()) {
+            Cache.ValueWrapper cached = cache.get(dimension.getKey());
+            if (cached == null) {
+                // Any miss recomputes every dimension in one pass and refills the cache
+                facets = countFacets(filter);
+                facets.forEach(cache::put);
+                break;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Long> buckets = (Map<String, Long>) cached.get();
+            facets.put(dimension.getKey(), buckets);
+        }
+        return BarangFacetResponse.builder().facets(facets).build();
+    }
+
+    public Map<Dimension, Object> snapshot(Barang barang) {
+        Map<Dimension, Object> values = new LinkedHashMap<>();
+        for (Dimension dimension : Dimension.values()) {
+            values.put(dimension, dimension.valueOf(barang));
+        }
+        return values;
+    }
+
+    public void evictChanged(Map<Dimension, Object> before, Barang after) {
+        Set<Dimension> changed = EnumSet.noneOf(Dimension.class);
+        before.forEach((dimension, value) -> {
+            if (!Objects.equals(value, dimension.valueOf(after))) {
+                changed.add(dimension);
+            }
+        });
+        evict(changed);
+    }
+
+    public void evictAll() {
+        evict(EnumSet.allOf(Dimension.class));
+    }
+
+    public void evict(Dimension... dimensions) {
+        evict(Arrays.asList(dimensions));
+    }
+
+    public void evict(Collection<Dimension> dimensions) {
+        if (dimensions.isEmpty()) {
+            return;
+        }
+        Cache cache = cache();
+        AfterCommit.run(() -> dimensions.forEach(dimension -> cache.evict(dimension.getKey())));
+    }
+
+    private Map<String, Map<String, Long>> countFacets(BarangFilter filter) {
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        for (Dimension dimension : Dimension.values()) {
+            facets.put(dimension.getKey(), new LinkedHashMap<>());
+        }
+        for (BarangFacetCount row : barangRepository.countFacets(
+                filter.getStatus() != null ? filter.getStatus().name() : null,
+                filter.getKondisi() != null ? filter.getKondisi().name() : null,
+                filter.getJenisBarang(),
+                filter.getGudang(),
+                filter.getLokasi(),
+                filter.getTglPerolehanFrom(),
+                filter.getTglPerolehanTo())) {
+            facets.get(row.getFacet()).put(row.getValue() != null ? row.getValue() : EMPTY_BUCKET, row.getTotal());
+        }
+        return facets;
+    }
+
+    private Cache cache() {
+        return Objects.requireNonNull(cacheManager.getCache(CACHE_NAME), "Cache " + CACHE_NAME + " tidak tersedia");
+    }
+}
@@ -0,0 +1,331 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.BarangImportResponse;
+import com.smap.api.domain.dto.BarangRequest;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.exception.BadRequestException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a barang CSV (header row with {@link BarangRequest} field names) straight into
+ * JDBC batch inserts. Only one batch of rows is ever held in memory, invalid rows are
+ * reported instead of aborting the import, and caches are invalidated once at the end.
+ * <p>
+ * Each batch runs under a savepoint. When the database rejects a batch (constraint, length,
+ * unknown photo), it is rolled back and retried row by row, so only the offending rows are
+ * reported and the rest of the file still goes in.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BarangImportService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String ROW_NOT_SAVED = "Baris tidak dapat disimpan";
+
+    private static final String INSERT_SQL = "INSERT INTO barang (kode_barang, nup, nama_barang, merk_type, ukuran, "
+            + "jenis_barang, gudang, lokasi, koordinat_peta, bukti_kepemilikan, kondisi, status, tgl_perolehan, "
+            + "photo_url, barcode_produk, barcode_sn, keterangan, tgl_surat, nopol, pemakai, "
+            + "created_at, updated_at, created_by, updated_by, version, is_deleted) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, FALSE)";
+
+    private static final int[] INSERT_TYPES = {
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.DATE, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DATE, Types.VARCHAR,
+            Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+    private final BarangFacetService barangFacetService;
+    private final DashboardCounters dashboardCounters;
+    private final AssetEventRecorder assetEventRecorder;
+    private final BarangBarcodeIndex barangBarcodeIndex;
+    private final FileStorageService fileStorageService;
+
+    private record PendingRow(long row, BarangRequest request) {
+    }
+
+    /**
+     * Running totals of one import.
+     */
+    private static final class Progress {
+        long imported;
+        long failed;
+        final List<BarangImportResponse.RowError> errors = new ArrayList<>();
+        final Map<Barang.StatusBarang, Long> importedByStatus = new EnumMap<>(Barang.StatusBarang.class);
+
+        void inserted(BarangRequest request) {
+            imported++;
+            importedByStatus.merge(request.getStatus(), 1L, Long::sum);
+        }
+
+        void failed(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BarangImportResponse.RowError(row, message));
+            }
+        }
+    }
+
+    @Transactional
+    public BarangImportResponse importCsv(MultipartFile file, String username) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("File CSV tidak boleh kosong");
+        }
+
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreHeaderCase(true)
+                .setIgnoreEmptyLines(true)
+                .setTrim(true)
+                .build();
+
+        long totalRows = 0;
+        Progress progress = new Progress();
+        List<PendingRow> batch = new ArrayList<>(BATCH_SIZE);
+        // Imported rows are found again by this created_at, so it must survive the round trip exactly
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+                CSVParser parser = format.parse(reader)) {
+
+            for (CSVRecord record : parser) {
+                totalRows++;
+                // +1 for the header line
+                long row = record.getRecordNumber() + 1;
+                String error;
+                BarangRequest request = null;
+                try {
+                    request = toRequest(record);
+                    error = validate(request);
+                } catch (IllegalArgumentException ex) {
+                    error = ex.getMessage();
+                }
+
+                if (error != null) {
+                    progress.failed(row, error);
+                    continue;
+                }
+
+                batch.add(new PendingRow(row, request));
+                if (batch.size() == BATCH_SIZE) {
+                    flush(batch, now, username, progress);
+                }
+            }
+            flush(batch, now, username, progress);
+
+        } catch (IOException e) {
+            log.error("Error reading import CSV: ", e);
+            throw new RuntimeException("Gagal membaca file CSV: " + e.getMessage());
+        }
+
+        if (progress.imported > 0) {
+            assetEventRecorder.recordImported(now);
+            barangBarcodeIndex.registerImported(now);
+        }
+        barangFacetService.evictAll();
+        progress.importedByStatus.forEach(dashboardCounters::barangAdded);
+        log.info("Barang import finished: {} rows, {} imported, {} failed", totalRows, progress.imported,
+                progress.failed);
+
+        // Rows of a rejected batch are only reported once the batch is flushed
+        progress.errors.sort(Comparator.comparingLong(BarangImportResponse.RowError::getRow));
+        return BarangImportResponse.builder()
+                .totalRows(totalRows)
+                .imported(progress.imported)
+                .failed(progress.failed)
+                .errors(progress.errors)
+                .build();
+    }
+
+    private void flush(List<PendingRow> batch, Timestamp now, String username, Progress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            inSavepoint(() -> {
+                List<Object[]> args = new ArrayList<>(batch.size());
+                for (PendingRow pending : batch) {
+                    fileStorageService.attach(pending.request().getPhotoUrl());
+                    args.add(toInsertArgs(pending.request(), now, username));
+                }
+                jdbcTemplate.batchUpdate(INSERT_SQL, args, INSERT_TYPES);
+            });
+            batch.forEach(pending -> progress.inserted(pending.request()));
+        } catch (BadRequestException | DataAccessException ex) {
+            for (PendingRow pending : batch) {
+                insertRow(pending, now, username, progress);
+            }
+        }
+        batch.clear();
+    }
+
+    private void insertRow(PendingRow pending, Timestamp now, String username, Progress progress) {
+        try {
+            inSavepoint(() -> {
+                fileStorageService.attach(pending.request().getPhotoUrl());
+                jdbcTemplate.update(INSERT_SQL, toInsertArgs(pending.request(), now, username), INSERT_TYPES);
+            });
+            progress.inserted(pending.request());
+        } catch (BadRequestException ex) {
+            progress.failed(pending.row(), "photoUrl: " + ex.getMessage());
+        } catch (DataAccessException ex) {
+            log.warn("Import row {} rejected by the database: {}", pending.row(),
+                    ex.getMostSpecificCause().getMessage());
+            progress.failed(pending.row(), rejection(ex));
+        }
+    }
+
+    /**
+     * Runs {@code work} on the import transaction's connection and undoes only its own writes when
+     * it fails; the import itself carries on.
+     */
+    private void inSavepoint(Runnable work) {
+        Savepoint savepoint = jdbcTemplate.execute((ConnectionCallback<Savepoint>) Connection::setSavepoint);
+        try {
+            work.run();
+        } catch (RuntimeException ex) {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                con.rollback(savepoint);
+                return null;
+            });
+            throw ex;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            con.releaseSavepoint(savepoint);
+            return null;
+        });
+    }
+
+    /**
+     * Client-facing reason for a rejected row; the database message itself names tables and
+     * constraints, so it only goes to the log.
+     */
+    private static String rejection(DataAccessException ex) {
+        String state = ex.getMostSpecificCause() instanceof SQLException sql ? sql.getSQLState() : null;
+        if (state == null) {
+            return ROW_NOT_SAVED;
+        }
+        return switch (state) {
+            case "22001" -> ROW_NOT_SAVED + ": nilai melebihi panjang kolom";
+            case "23502" -> ROW_NOT_SAVED + ": kolom wajib tidak boleh kosong";
+            case "23505" -> ROW_NOT_SAVED + ": data sudah ada";
+            case "22P02", "23514", "22007", "22008" -> ROW_NOT_SAVED + ": nilai tidak valid";
+            default -> ROW_NOT_SAVED;
+        };
+    }
+
+    private String validate(BarangRequest request) {
+        Set<ConstraintViolation<BarangRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private BarangRequest toRequest(CSVRecord record) {
+        BarangRequest req = new BarangRequest();
+        req.setKodeBarang(value(record, "kodeBarang"));
+        req.setNup(value(record, "nup"));
+        req.setNamaBarang(value(record, "namaBarang"));
+        req.setMerkType(value(record, "merkType"));
+        req.setUkuran(value(record, "ukuran"));
+        req.setJenisBarang(value(record, "jenisBarang"));
+        req.setGudang(value(record, "gudang"));
+        req.setLokasi(value(record, "lokasi"));
+        req.setKoordinatPeta(value(record, "koordinatPeta"));
+        req.setBuktiKepemilikan(value(record, "buktiKepemilikan"));
+        req.setKondisi(enumValue(record, "kondisi", Barang.KondisiBarang.class));
+        req.setStatus(enumValue(record, "status", Barang.StatusBarang.class));
+        req.setTglPerolehan(date(record, "tglPerolehan"));
+        req.setPhotoUrl(value(record, "photoUrl"));
+        req.setBarcodeProduk(value(record, "barcodeProduk"));
+        req.setBarcodeSn(value(record, "barcodeSn"));
+        req.setKeterangan(value(record, "keterangan"));
+        req.setTglSurat(date(record, "tglSurat"));
+        req.setNopol(value(record, "nopol"));
+        req.setPemakai(value(record, "pemakai"));
+        return req;
+    }
+
+    private Object[] toInsertArgs(BarangRequest req, Timestamp now, String username) {
+        return new Object[] {
+                req.getKodeBarang(), req.getNup(), req.getNamaBarang(), req.getMerkType(), req.getUkuran(),
+                req.getJenisBarang(), req.getGudang(), req.getLokasi(), req.getKoordinatPeta(),
+                req.getBuktiKepemilikan(), req.getKondisi().name(), req.getStatus().name(),
+                req.getTglPerolehan() != null ? Date.valueOf(req.getTglPerolehan()) : null,
+                req.getPhotoUrl(), req.getBarcodeProduk(), req.getBarcodeSn(), req.getKeterangan(),
+                req.getTglSurat() != null ? Date.valueOf(req.getTglSurat()) : null,
+                req.getNopol(), req.getPemakai(), now, now, username, username };
+    }
+
+    private static String value(CSVRecord record, String column) {
+        if (!record.isMapped(column) || !record.isSet(column)) {
+            return null;
+        }
+        String value = record.get(column);
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static LocalDate date(CSVRecord record, String column) {
+        String value = value(record, column);
+        try {
+            return value != null ? LocalDate.parse(value) : null;
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException(column + ": format tanggal harus yyyy-MM-dd, ditemukan '" + value + "'");
+        }
+    }
+
+    private static <E extends Enum<E>> E enumValue(CSVRecord record, String column, Class<E> type) {
+        String value = value(record, column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(column + ": nilai '" + value + "' tidak dikenal");
+        }
+    }
+}
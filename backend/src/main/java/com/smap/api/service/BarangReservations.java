@@ -0,0 +1,101 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.BarangConflictResponse;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.exception.BadRequestException;
+import com.smap.api.exception.ConflictException;
+import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.repository.BarangRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Moves a set of TERSEDIA barang into another status for a peminjaman or perawatan with one
+ * conditional UPDATE. Rows are locked in id order first, so overlapping requests queue instead of
+ * deadlocking, and the status check is re-evaluated after the wait: the loser of a race gets a
+ * 409 naming the contested barang rather than an optimistic lock failure.
+ */
+@Component
+@RequiredArgsConstructor
+public class BarangReservations {
+
+    private static final String RESERVE_SQL = "UPDATE barang b SET status = ?, version = b.version + 1, "
+            + "updated_at = ?, updated_by = ? "
+            + "FROM (SELECT id FROM barang WHERE id = ANY(?) ORDER BY id FOR UPDATE) locked "
+            + "WHERE b.id = locked.id AND b.status = 'TERSEDIA' AND b.is_deleted = FALSE "
+            + "RETURNING b.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BarangRepository barangRepository;
+
+    /**
+     * Returns the reserved barang keyed by id, in id order, already in the {@code target} status.
+     * Throws listing every missing id, or every barang that was not TERSEDIA, so the caller can fix
+     * the whole request at once. Must run inside the caller's transaction, which holds the row
+     * locks until commit and rolls the partial update back on failure.
+     */
+    public Map<Long, Barang> reserve(Collection<Long> barangIds, Barang.StatusBarang target, String keperluan,
+            String username) {
+        TreeSet<Long> ids = new TreeSet<>(barangIds);
+        if (ids.size() != barangIds.size()) {
+            throw new BadRequestException("Barang yang sama tidak boleh dipilih lebih dari sekali");
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> reservedIds = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RESERVE_SQL);
+            ps.setString(1, target.name());
+            ps.setTimestamp(2, now);
+            ps.setString(3, username);
+            ps.setArray(4, con.createArrayOf("bigint", ids.toArray(Long[]::new)));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+
+        if (reservedIds.size() != ids.size()) {
+            Set<Long> reserved = new HashSet<>(reservedIds);
+            rejectUnreserved(ids.stream().filter(id -> !reserved.contains(id)).toList(), keperluan);
+        }
+
+        // Loaded after the UPDATE so the entities carry the new status and version
+        return barangRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(Barang::getId))
+                .collect(Collectors.toMap(Barang::getId, barang -> barang, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private void rejectUnreserved(List<Long> ids, String keperluan) {
+        Map<Long, Barang> found = barangRepository.findAllById(ids).stream()
+                .filter(barang -> !barang.isDeleted())
+                .collect(Collectors.toMap(Barang::getId, barang -> barang));
+
+        List<Long> missing = ids.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Barang ID " + missing.stream().map(String::valueOf)
+                    .collect(Collectors.joining(", ")) + " tidak ditemukan");
+        }
+
+        List<BarangConflictResponse.Contested> contested = ids.stream()
+                .map(found::get)
+                .map(barang -> new BarangConflictResponse.Contested(barang.getId(), barang.getNamaBarang(),
+                        barang.getStatus() != null ? barang.getStatus().name() : null))
+                .toList();
+        throw new ConflictException("Barang berikut tidak tersedia untuk " + keperluan + ": "
+                + contested.stream()
+                        .map(item -> item.getNamaBarang() + " (ID " + item.getId() + ", " + item.getStatus() + ")")
+                        .collect(Collectors.joining(", ")),
+                BarangConflictResponse.builder().contested(contested).build());
+    }
+}
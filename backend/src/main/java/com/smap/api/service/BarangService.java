@@ -1,39 +1,211 @@
 package com.smap.api.service;
 
+import com.smap.api.config.CacheConfig;
+import com.smap.api.domain.dto.AssetEventResponse;
+import com.smap.api.domain.dto.BarangFacetResponse;
+import com.smap.api.domain.dto.BarangFilter;
 import com.smap.api.domain.dto.BarangRequest;
 import com.smap.api.domain.dto.BarangResponse;
+import com.smap.api.domain.dto.BarangSearchResponse;
+import com.smap.api.domain.dto.CursorPagedResponse;
+import com.smap.api.domain.dto.PageCursor;
 import com.smap.api.domain.dto.PagedResponse;
+import com.smap.api.domain.entity.AssetEvent;
 import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.projection.BarangListItem;
+import com.smap.api.domain.projection.BarangSearchResult;
+import com.smap.api.exception.BadRequestException;
 import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.repository.AssetEventRepository;
 import com.smap.api.repository.BarangRepository;
+import com.smap.api.repository.BarangSpecifications;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class BarangService {
 
+    private static final KeysetPagination KEYSET = new KeysetPagination(Map.of(
+            "id", Long::valueOf,
+            "createdAt", LocalDateTime::parse,
+            "namaBarang", Function.identity(),
+            "kodeBarang", Function.identity()));
+
+    private static final String SEARCH_SORT_KEY = "score";
+    private static final int MAX_SEARCH_SIZE = 100;
+    private static final String TIMELINE_SORT_KEY = "occurredAt";
+    private static final int MAX_TIMELINE_SIZE = 100;
+
     private final BarangRepository barangRepository;
     private final com.smap.api.repository.PeminjamanRepository peminjamanRepository;
     private final com.smap.api.repository.PerawatanRepository perawatanRepository;
+    private final BarangFacetService barangFacetService;
+    private final BarangBarcodeIndex barangBarcodeIndex;
+    private final CacheEvictions cacheEvictions;
+    private final DashboardCounters dashboardCounters;
+    private final AssetEventRepository assetEventRepository;
+    private final AssetEventRecorder assetEventRecorder;
+    private final ImageRenditionService imageRenditionService;
+    private final FileStorageService fileStorageService;
 
     @Transactional(readOnly = true)
-    public PagedResponse<BarangResponse> getAllBarang(int page, int size, String sortDir, String sortBy) {
+    public PagedResponse<BarangResponse> getAllBarang(int page, int size, String sortDir, String sortBy,
+            BarangFilter filter) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Barang> barangPage = barangRepository.findAll(pageable);
+        // Soft-deleted barang are left out with or without a filter, as in the facet counts
+        Page<Barang> barangPage = barangRepository.findAll(BarangSpecifications.matches(filter), pageable);
         Page<BarangResponse> responsePage = barangPage.map(BarangResponse::fromEntity);
         return PagedResponse.of(responsePage);
     }
 
+    @Transactional(readOnly = true)
+    public PagedResponse<BarangListItem> getAllBarangListItems(int page, int size, String sortDir, String sortBy,
+            BarangFilter filter) {
+        Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending()
+                : Sort.by(sortBy).descending();
+        Pageable pageable = PageRequest.of(page, size, sort);
+        Page<BarangListItem> itemPage = filter.isEmpty()
+                ? barangRepository.findByDeletedFalse(pageable, BarangListItem.class)
+                : barangRepository.findListItems(filter.getStatus(), filter.getKondisi(), filter.getJenisBarang(),
+                        filter.getGudang(), filter.getLokasi(), filter.getTglPerolehanFrom(),
+                        filter.getTglPerolehanTo(), pageable);
+        return PagedResponse.of(itemPage);
+    }
+
+    public BarangFacetResponse getFacets(BarangFilter filter) {
+        return barangFacetService.getFacets(filter);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<BarangResponse> getAllBarangKeyset(String after, int size, String sortDir,
+            String sortBy, boolean withTotal) {
+        KeysetPagination.Query query = KEYSET.query(after, size, sortBy, sortDir);
+        Window<Barang> window = barangRepository.findByDeletedFalse(query.position(), query.sort(), query.limit());
+        Long total = withTotal ? barangRepository.countByDeletedFalse() : null;
+        return KEYSET.toResponse(query, window, BarangResponse::fromEntity, total);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<BarangSearchResponse> searchBarang(String q, String after, int size) {
+        if (q == null || q.isBlank()) {
+            throw new BadRequestException("Kata kunci pencarian tidak boleh kosong");
+        }
+        String keyword = q.trim().toLowerCase(Locale.ROOT);
+        int limit = Math.max(1, Math.min(size, MAX_SEARCH_SIZE));
+
+        Float afterScore = null;
+        Long afterId = null;
+        if (after != null && !after.isBlank()) {
+            PageCursor cursor = PageCursor.decode(after);
+            if (!SEARCH_SORT_KEY.equals(cursor.sortBy())) {
+                throw new BadRequestException("Cursor tidak valid");
+            }
+            try {
+                afterScore = Float.valueOf(cursor.value());
+            } catch (NumberFormatException ex) {
+                throw new BadRequestException("Cursor tidak valid", ex);
+            }
+            afterId = cursor.id();
+        }
+
+        // Fetch one extra row to know whether another page exists without counting
+        List<BarangSearchResult> rows = barangRepository.search(keyword, afterScore, afterId, limit + 1);
+        boolean hasNext = rows.size() > limit;
+        List<BarangSearchResult> page = hasNext ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            BarangSearchResult lastRow = page.get(page.size() - 1);
+            nextCursor = new PageCursor(SEARCH_SORT_KEY, Sort.Direction.DESC, String.valueOf(lastRow.getScore()),
+                    lastRow.getId()).encode();
+        }
+
+        return CursorPagedResponse.<BarangSearchResponse>builder()
+                .content(page.stream().map(BarangSearchResponse::fromResult).toList())
+                .pageSize(limit)
+                .nextCursor(nextCursor)
+                .last(!hasNext)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public List<BarangResponse> findByBarcode(String code) {
+        return findByBarcodes(List.of(code)).getOrDefault(code.trim(), List.of());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, List<BarangResponse>> findByBarcodes(Collection<String> codes) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String code : codes) {
+            if (code != null && !code.isBlank()) {
+                normalized.add(code.trim());
+            }
+        }
+
+        Set<Long> indexedIds = new HashSet<>();
+        Set<String> unresolved = new LinkedHashSet<>();
+        for (String code : normalized) {
+            Set<Long> ids = barangBarcodeIndex.lookup(code);
+            if (ids == null) {
+                unresolved.add(code);
+            } else {
+                indexedIds.addAll(ids);
+            }
+        }
+
+        Map<Long, Barang> found = new LinkedHashMap<>();
+        if (!indexedIds.isEmpty()) {
+            barangRepository.findAllById(indexedIds).forEach(b -> found.put(b.getId(), b));
+        }
+        if (!unresolved.isEmpty()) {
+            for (Barang barang : barangRepository.findByBarcodes(unresolved)) {
+                found.put(barang.getId(), barang);
+                barangBarcodeIndex.register(barang);
+            }
+        }
+
+        Map<String, List<BarangResponse>> result = new LinkedHashMap<>();
+        for (String code : normalized) {
+            result.put(code, found.values().stream()
+                    .filter(b -> !b.isDeleted())
+                    .filter(b -> BarangBarcodeIndex.codes(b.getBarcodeProduk(), b.getBarcodeSn()).contains(code))
+                    .map(BarangResponse::fromEntity)
+                    .toList());
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public String getBarangVersionTag(Long id) {
+        return barangRepository.findVersionTag(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Barang dengan ID " + id + " tidak ditemukan"));
+    }
+
+    @Cacheable(value = CacheConfig.BARANG, key = "#id")
     @Transactional(readOnly = true)
     public BarangResponse getBarangById(Long id) {
         Barang barang = barangRepository.findById(id)
@@ -44,35 +216,71 @@ public class BarangService {
         return BarangResponse.fromEntity(barang);
     }
 
-    @CacheEvict(value = "dashboardData", allEntries = true)
     @Transactional
     public BarangResponse createBarang(BarangRequest request) {
         Barang barang = new Barang();
         mapRequestToEntity(request, barang);
         Barang saved = barangRepository.save(barang);
+        barangFacetService.evictAll();
+        barangBarcodeIndex.update(saved);
+        dashboardCounters.barangAdded(saved.getStatus(), 1);
+        assetEventRecorder.record(AssetEvent.builder()
+                .barangId(saved.getId())
+                .eventType(AssetEvent.EventType.DIBUAT)
+                .statusTo(saved.getStatus())
+                .kondisiTo(saved.getKondisi()));
+        scheduleRenditions(saved);
         return BarangResponse.fromEntity(saved);
     }
 
-    @CacheEvict(value = "dashboardData", allEntries = true)
     @Transactional
-    public BarangResponse updateBarang(Long id, BarangRequest request) {
+    public BarangResponse updateBarang(Long id, BarangRequest request, String ifMatch) {
         Barang barang = barangRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Barang dengan ID " + id + " tidak ditemukan"));
         if (barang.isDeleted()) {
             throw new ResourceNotFoundException("Barang dengan ID " + id + " telah dihapus");
         }
+        EntityTags.checkIfMatch(ifMatch, barang);
+        Map<BarangFacetService.Dimension, Object> facetsBefore = barangFacetService.snapshot(barang);
+        Barang.StatusBarang oldStatus = barang.getStatus();
+        Barang.KondisiBarang oldKondisi = barang.getKondisi();
         mapRequestToEntity(request, barang);
         Barang updated = barangRepository.save(barang);
+        barangFacetService.evictChanged(facetsBefore, updated);
+        barangBarcodeIndex.update(updated);
+        cacheEvictions.evictAfterCommit(CacheConfig.BARANG, id);
+        dashboardCounters.barangMoved(oldStatus, updated.getStatus());
+        assetEventRecorder.record(AssetEventRecorder.change(id, oldStatus, updated.getStatus(), oldKondisi,
+                updated.getKondisi()));
+        scheduleRenditions(updated);
         return BarangResponse.fromEntity(updated);
     }
 
-    @CacheEvict(value = "dashboardData", allEntries = true)
     @Transactional
     public void deleteBarang(Long id) {
         Barang barang = barangRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Barang dengan ID " + id + " tidak ditemukan"));
+        boolean wasDeleted = barang.isDeleted();
         barang.setDeleted(true);
         barangRepository.save(barang);
+        if (!wasDeleted) {
+            fileStorageService.detach(barang.getPhotoUrl());
+            dashboardCounters.barangRemoved(barang.getStatus());
+            assetEventRecorder.record(AssetEvent.builder()
+                    .barangId(id)
+                    .eventType(AssetEvent.EventType.DIHAPUS)
+                    .statusFrom(barang.getStatus())
+                    .kondisiFrom(barang.getKondisi()));
+        }
+        barangFacetService.evictAll();
+        barangBarcodeIndex.update(barang);
+        cacheEvictions.evictAfterCommit(CacheConfig.BARANG, id);
+    }
+
+    private void scheduleRenditions(Barang barang) {
+        if (barang.getPhotoUrl() != null && barang.getPhotoThumbUrl() == null) {
+            imageRenditionService.schedule(barang.getId(), barang.getPhotoUrl());
+        }
     }
 
     private void mapRequestToEntity(BarangRequest req, Barang entity) {
@@ -89,7 +297,13 @@ public class BarangService {
         entity.setKondisi(req.getKondisi());
         entity.setStatus(req.getStatus());
         entity.setTglPerolehan(req.getTglPerolehan());
-        entity.setPhotoUrl(req.getPhotoUrl());
+        if (!Objects.equals(entity.getPhotoUrl(), req.getPhotoUrl())) {
+            fileStorageService.attach(req.getPhotoUrl());
+            fileStorageService.detach(entity.getPhotoUrl());
+            entity.setPhotoUrl(req.getPhotoUrl());
+            entity.setPhotoThumbUrl(null);
+            entity.setPhotoMediumUrl(null);
+        }
         entity.setBarcodeProduk(req.getBarcodeProduk());
         entity.setBarcodeSn(req.getBarcodeSn());
         entity.setKeterangan(req.getKeterangan());
@@ -98,14 +312,62 @@ public class BarangService {
         entity.setPemakai(req.getPemakai());
     }
 
+    /**
+     * Newest-first state changes of a barang from asset_event, keyset-paged on (occurredAt, id).
+     */
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<AssetEventResponse> getTimeline(Long barangId, String after, int size) {
+        if (!barangRepository.existsById(barangId)) {
+            throw new ResourceNotFoundException("Barang dengan ID " + barangId + " tidak ditemukan");
+        }
+        int limit = Math.max(1, Math.min(size, MAX_TIMELINE_SIZE));
+
+        // Fetch one extra row to know whether another page exists without counting
+        List<AssetEvent> rows;
+        if (after != null && !after.isBlank()) {
+            PageCursor cursor = PageCursor.decode(after);
+            if (!TIMELINE_SORT_KEY.equals(cursor.sortBy())) {
+                throw new BadRequestException("Cursor tidak valid");
+            }
+            LocalDateTime afterOccurredAt;
+            try {
+                afterOccurredAt = LocalDateTime.parse(cursor.value());
+            } catch (DateTimeParseException ex) {
+                throw new BadRequestException("Cursor tidak valid", ex);
+            }
+            rows = assetEventRepository.findTimelineAfter(barangId, afterOccurredAt, cursor.id(), limit + 1);
+        } else {
+            rows = assetEventRepository.findTimeline(barangId, limit + 1);
+        }
+        boolean hasNext = rows.size() > limit;
+        List<AssetEvent> page = hasNext ? rows.subList(0, limit) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            AssetEvent lastRow = page.get(page.size() - 1);
+            nextCursor = new PageCursor(TIMELINE_SORT_KEY, Sort.Direction.DESC, lastRow.getOccurredAt().toString(),
+                    lastRow.getId()).encode();
+        }
+
+        return CursorPagedResponse.<AssetEventResponse>builder()
+                .content(page.stream().map(AssetEventResponse::fromEntity).toList())
+                .pageSize(limit)
+                .nextCursor(nextCursor)
+                .last(!hasNext)
+                .build();
+    }
+
     @Transactional(readOnly = true)
     public PagedResponse<com.smap.api.domain.dto.PeminjamanResponse> getHistoryPeminjamanByBarangId(Long barangId,
             int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
         Page<com.smap.api.domain.entity.Peminjaman> peminjamanPage = peminjamanRepository
                 .findHistoryByBarangIdPaged(barangId, pageable);
+        Map<Long, com.smap.api.domain.entity.Peminjaman> loaded = peminjamanPage.isEmpty() ? Map.of()
+                : peminjamanRepository.findAllWithDetailsByIdIn(peminjamanPage.map(p -> p.getId()).getContent())
+                        .stream().collect(Collectors.toMap(p -> p.getId(), Function.identity()));
         Page<com.smap.api.domain.dto.PeminjamanResponse> responsePage = peminjamanPage
-                .map(com.smap.api.domain.dto.PeminjamanResponse::fromEntity);
+                .map(p -> com.smap.api.domain.dto.PeminjamanResponse.fromEntity(loaded.getOrDefault(p.getId(), p)));
         return PagedResponse.of(responsePage);
     }
 
@@ -115,8 +377,11 @@ public class BarangService {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
         Page<com.smap.api.domain.entity.Perawatan> perawatanPage = perawatanRepository
                 .findHistoryByBarangIdPaged(barangId, pageable);
+        Map<Long, com.smap.api.domain.entity.Perawatan> loaded = perawatanPage.isEmpty() ? Map.of()
+                : perawatanRepository.findAllWithDetailsByIdIn(perawatanPage.map(p -> p.getId()).getContent())
+                        .stream().collect(Collectors.toMap(p -> p.getId(), Function.identity()));
         Page<com.smap.api.domain.dto.PerawatanResponse> responsePage = perawatanPage
-                .map(com.smap.api.domain.dto.PerawatanResponse::fromEntity);
+                .map(p -> com.smap.api.domain.dto.PerawatanResponse.fromEntity(loaded.getOrDefault(p.getId(), p)));
         return PagedResponse.of(responsePage);
     }
 }
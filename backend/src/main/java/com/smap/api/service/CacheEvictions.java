@@ -0,0 +1,34 @@
+package com.smap.api.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Key-level evictions for entity caches, deferred until commit so a concurrent reader cannot
+ * refill the cache with the pre-commit row between the eviction and the commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheEvictions {
+
+    private final CacheManager cacheManager;
+
+    public void evictAfterCommit(String cacheName, Object key) {
+        evictAfterCommit(cacheName, List.of(key));
+    }
+
+    public void evictAfterCommit(String cacheName, Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(cacheName), "Cache " + cacheName + " tidak tersedia");
+        List<?> snapshot = List.copyOf(keys);
+        AfterCommit.run(() -> snapshot.forEach(cache::evict));
+    }
+}
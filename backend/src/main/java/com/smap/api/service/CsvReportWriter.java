@@ -0,0 +1,37 @@
+package com.smap.api.service;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class CsvReportWriter implements ReportWriter {
+
+    private final CSVPrinter printer;
+
+    CsvReportWriter(OutputStream out, List<String> header) throws IOException {
+        this.printer = new CSVPrinter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)),
+                CSVFormat.DEFAULT.builder().setHeader(header.toArray(String[]::new)).build());
+    }
+
+    @Override
+    public void row(List<?> values) throws IOException {
+        List<String> cells = new ArrayList<>(values.size());
+        for (Object value : values) {
+            cells.add(value != null ? value.toString() : "-");
+        }
+        printer.printRecord(cells);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Only flush: the caller owns the underlying stream
+        printer.flush();
+    }
+}
@@ -0,0 +1,184 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.entity.Peminjaman;
+import com.smap.api.domain.entity.Perawatan;
+import com.smap.api.domain.projection.BarangStatusCount;
+import com.smap.api.repository.BarangRepository;
+import com.smap.api.repository.PeminjamanRepository;
+import com.smap.api.repository.PerawatanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dashboard counters kept in a Redis hash and moved by status transitions after commit, so the
+ * summary is a single HGETALL instead of a recount. A scheduled reconciliation overwrites the
+ * hash from the database, which also repairs drift from increments that raced a reconciliation
+ * or were lost while Redis was unreachable.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DashboardCounters {
+
+    public static final String TOTAL_BARANG = "totalBarang";
+    public static final String PEMINJAMAN_AKTIF = "peminjamanAktif";
+    public static final String PERAWATAN_AKTIF = "perawatanAktif";
+
+    private static final String KEY = "smap:dashboard:counters";
+    // Only written by reconcile(), so a hash created by a stray HINCRBY is never trusted
+    private static final String RECONCILED_AT = "reconciledAt";
+
+    private final StringRedisTemplate redisTemplate;
+    private final BarangRepository barangRepository;
+    private final PeminjamanRepository peminjamanRepository;
+    private final PerawatanRepository perawatanRepository;
+
+    private final AtomicBoolean stale = new AtomicBoolean(false);
+
+    public static String status(Barang.StatusBarang status) {
+        return "status:" + status.name();
+    }
+
+    public Map<String, Long> snapshot() {
+        if (!stale.get()) {
+            try {
+                Map<String, String> entries = hash().entries(KEY);
+                if (entries.containsKey(RECONCILED_AT)) {
+                    Map<String, Long> counters = new LinkedHashMap<>();
+                    entries.forEach((field, value) -> {
+                        if (!RECONCILED_AT.equals(field)) {
+                            counters.put(field, Math.max(0L, Long.parseLong(value)));
+                        }
+                    });
+                    return counters;
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Dashboard counters unavailable, counting from database: {}", ex.getMessage());
+                return countFromDatabase();
+            }
+        }
+        return reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${smap.dashboard.reconcile-interval-ms:300000}",
+            initialDelayString = "${smap.dashboard.reconcile-interval-ms:300000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    public Map<String, Long> reconcile() {
+        Map<String, Long> counters = countFromDatabase();
+        Map<String, String> fields = new LinkedHashMap<>();
+        counters.forEach((field, value) -> fields.put(field, String.valueOf(value)));
+        fields.put(RECONCILED_AT, Instant.now().toString());
+        try {
+            hash().putAll(KEY, fields);
+            stale.set(false);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to store reconciled dashboard counters: {}", ex.getMessage());
+        }
+        return counters;
+    }
+
+    public void barangAdded(Barang.StatusBarang status, long count) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        deltas.put(TOTAL_BARANG, count);
+        addDelta(deltas, status, count);
+        apply(deltas);
+    }
+
+    public void barangRemoved(Barang.StatusBarang status) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        deltas.put(TOTAL_BARANG, -1L);
+        addDelta(deltas, status, -1L);
+        apply(deltas);
+    }
+
+    public void barangMoved(Barang.StatusBarang from, Barang.StatusBarang to) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        if (from != to) {
+            addDelta(deltas, from, -1L);
+            addDelta(deltas, to, 1L);
+        }
+        apply(deltas);
+    }
+
+    public void barangMoved(Map<Barang.StatusBarang, Long> from, Barang.StatusBarang to) {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        from.forEach((status, count) -> {
+            if (status != to) {
+                addDelta(deltas, status, -count);
+                addDelta(deltas, to, count);
+            }
+        });
+        apply(deltas);
+    }
+
+    public void peminjamanAktif(long delta) {
+        apply(Map.of(PEMINJAMAN_AKTIF, delta));
+    }
+
+    public void perawatanAktif(long delta) {
+        apply(Map.of(PERAWATAN_AKTIF, delta));
+    }
+
+    private static void addDelta(Map<String, Long> deltas, Barang.StatusBarang status, long delta) {
+        if (status != null) {
+            deltas.merge(status(status), delta, Long::sum);
+        }
+    }
+
+    private void apply(Map<String, Long> deltas) {
+        Map<String, Long> changes = new LinkedHashMap<>();
+        deltas.forEach((field, delta) -> {
+            if (delta != 0) {
+                changes.put(field, delta);
+            }
+        });
+        if (changes.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            try {
+                changes.forEach((field, delta) -> hash().increment(KEY, field, delta));
+            } catch (RuntimeException ex) {
+                stale.set(true);
+                log.warn("Failed to update dashboard counters, next read will reconcile: {}", ex.getMessage());
+            }
+        });
+    }
+
+    private Map<String, Long> countFromDatabase() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        long total = 0;
+        for (Barang.StatusBarang status : Barang.StatusBarang.values()) {
+            counters.put(status(status), 0L);
+        }
+        for (BarangStatusCount row : barangRepository.countActiveByStatus()) {
+            if (row.getStatus() != null) {
+                counters.put(status(row.getStatus()), row.getTotal());
+            }
+            total += row.getTotal();
+        }
+        counters.put(TOTAL_BARANG, total);
+        counters.put(PEMINJAMAN_AKTIF,
+                peminjamanRepository.countByStatusAndDeletedFalse(Peminjaman.StatusPeminjaman.DIPINJAM));
+        counters.put(PERAWATAN_AKTIF,
+                perawatanRepository.countByStatusAndDeletedFalse(Perawatan.StatusPerawatan.PERAWATAN));
+        return counters;
+    }
+
+    private HashOperations<String, String, String> hash() {
+        return redisTemplate.opsForHash();
+    }
+}
@@ -2,44 +2,32 @@ package com.smap.api.service;
 
 import com.smap.api.domain.dto.DashboardResponse;
 import com.smap.api.domain.entity.Barang;
-import com.smap.api.domain.entity.Peminjaman;
-import com.smap.api.domain.entity.Perawatan;
-import com.smap.api.repository.BarangRepository;
-import com.smap.api.repository.PeminjamanRepository;
-import com.smap.api.repository.PerawatanRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class DashboardService {
 
-    private final BarangRepository barangRepository;
-    private final PeminjamanRepository peminjamanRepository;
-    private final PerawatanRepository perawatanRepository;
+    private final DashboardCounters dashboardCounters;
 
-    @Cacheable(value = "dashboardData", key = "'summary'")
-    @Transactional(readOnly = true)
     public DashboardResponse getDashboardSummary() {
-        long totalBarang = barangRepository.countByDeletedFalse();
-        long tersedia = barangRepository.countByStatusAndDeletedFalse(Barang.StatusBarang.TERSEDIA);
-        long dipinjam = barangRepository.countByStatusAndDeletedFalse(Barang.StatusBarang.DIPINJAM);
-        long dirawat = barangRepository.countByStatusAndDeletedFalse(Barang.StatusBarang.DIRAWAT);
-        long rusak = barangRepository.countByStatusAndDeletedFalse(Barang.StatusBarang.RUSAK);
-
-        long peminjamanAktif = peminjamanRepository.countByStatusAndDeletedFalse(Peminjaman.StatusPeminjaman.DIPINJAM);
-        long perawatanAktif = perawatanRepository.countByStatusAndDeletedFalse(Perawatan.StatusPerawatan.PERAWATAN);
+        Map<String, Long> counters = dashboardCounters.snapshot();
 
         return DashboardResponse.builder()
-                .totalBarang(totalBarang)
-                .barangTersedia(tersedia)
-                .barangDipinjam(dipinjam)
-                .barangDirawat(dirawat)
-                .barangRusak(rusak)
-                .peminjamanAktif(peminjamanAktif)
-                .perawatanAktif(perawatanAktif)
+                .totalBarang(counters.getOrDefault(DashboardCounters.TOTAL_BARANG, 0L))
+                .barangTersedia(status(counters, Barang.StatusBarang.TERSEDIA))
+                .barangDipinjam(status(counters, Barang.StatusBarang.DIPINJAM))
+                .barangDirawat(status(counters, Barang.StatusBarang.DIRAWAT))
+                .barangRusak(status(counters, Barang.StatusBarang.RUSAK))
+                .peminjamanAktif(counters.getOrDefault(DashboardCounters.PEMINJAMAN_AKTIF, 0L))
+                .perawatanAktif(counters.getOrDefault(DashboardCounters.PERAWATAN_AKTIF, 0L))
                 .build();
     }
+
+    private static long status(Map<String, Long> counters, Barang.StatusBarang status) {
+        return counters.getOrDefault(DashboardCounters.status(status), 0L);
+    }
 }
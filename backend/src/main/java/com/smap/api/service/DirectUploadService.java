@@ -0,0 +1,265 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.DirectUploadRequest;
+import com.smap.api.domain.dto.DirectUploadResponse;
+import com.smap.api.exception.BadRequestException;
+import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.exception.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presigned uploads straight from the browser to the bucket, so large files never pass through a
+ * request thread. The browser PUTs to a staging key with a signed length and SHA-256 checksum;
+ * completion checks size, magic bytes and hash on the stored object and only then moves it to its
+ * content-addressed key, the only form {@link FileStorageService#attach} accepts.
+ */
+@Slf4j
+@Service
+public class DirectUploadService {
+
+    private static final String STAGING_PREFIX = "incoming/";
+    private static final Duration URL_TTL = Duration.ofMinutes(10);
+    // Completion may come a while after the PUT itself, e.g. after a slow upload near the URL expiry
+    private static final Duration PENDING_TTL = Duration.ofHours(1);
+
+    private static final String INSERT_SQL = "INSERT INTO pending_upload "
+            + "(id, username, staging_key, content_type, size_bytes, sha256, expires_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String FIND_SQL = "SELECT staging_key, content_type, size_bytes, sha256 "
+            + "FROM pending_upload WHERE id = ? AND username = ? AND expires_at > ?";
+    private static final String CLAIM_SQL = "DELETE FROM pending_upload WHERE id = ? RETURNING 1";
+    private static final String PURGE_SQL = "DELETE FROM pending_upload WHERE expires_at < ? RETURNING staging_key";
+
+    private record Pending(String stagingKey, ImageType type, long size, String sha256) {
+    }
+
+    private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final FileStorageService fileStorageService;
+    private final StoredObjects storedObjects;
+    private final JdbcTemplate jdbcTemplate;
+    private final String bucket;
+    private final DataSize maxSize;
+
+    public DirectUploadService(S3Client s3Client, S3Presigner s3Presigner, FileStorageService fileStorageService,
+            StoredObjects storedObjects, JdbcTemplate jdbcTemplate, @Value("${smap.minio.bucket}") String bucket,
+            @Value("${spring.servlet.multipart.max-file-size:50MB}") DataSize maxSize) {
+        this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
+        this.fileStorageService = fileStorageService;
+        this.storedObjects = storedObjects;
+        this.jdbcTemplate = jdbcTemplate;
+        this.bucket = bucket;
+        this.maxSize = maxSize;
+    }
+
+    public DirectUploadResponse issue(DirectUploadRequest request, String username) {
+        ImageType type = ImageType.fromContentType(request.getContentType());
+        if (type == null) {
+            throw new BadRequestException("Tipe file tidak didukung, hanya JPEG, PNG, atau WebP");
+        }
+        if (request.getSize() > maxSize.toBytes()) {
+            throw new BadRequestException("Ukuran file melebihi batas " + maxSize.toMegabytes() + " MB");
+        }
+
+        UUID id = UUID.randomUUID();
+        String stagingKey = STAGING_PREFIX + id + type.getExtension();
+        String sha256 = request.getSha256().toLowerCase(Locale.ROOT);
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(URL_TTL)
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(stagingKey)
+                        .contentType(type.getContentType())
+                        .contentLength(request.getSize())
+                        .checksumSHA256(Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256)))
+                        .build())
+                .build());
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(INSERT_SQL, id, username, stagingKey, type.getContentType(), request.getSize(), sha256,
+                Timestamp.valueOf(now.plus(PENDING_TTL)));
+
+        // Host and Content-Length are set by the browser itself and may not be passed explicitly
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            if (!name.equalsIgnoreCase("host") && !name.equalsIgnoreCase("content-length")) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return DirectUploadResponse.builder()
+                .uploadId(id.toString())
+                .method("PUT")
+                .uploadUrl(presigned.url().toString())
+                .headers(headers)
+                .expiresAt(now.plus(URL_TTL))
+                .build();
+    }
+
+    /**
+     * Verifies the uploaded object and returns its URL. A mismatch discards the upload and is
+     * reported as a bad request; the declared values were signed, so it can only come from a client
+     * that did not follow the issued headers or a store that does not enforce them.
+     */
+    public String complete(String uploadId, String username) {
+        UUID id;
+        try {
+            id = UUID.fromString(uploadId);
+        } catch (IllegalArgumentException ex) {
+            throw new ResourceNotFoundException("Unggahan tidak ditemukan atau sudah kedaluwarsa");
+        }
+        Pending pending = jdbcTemplate.query(FIND_SQL,
+                        (rs, rowNum) -> new Pending(rs.getString("staging_key"),
+                                ImageType.fromContentType(rs.getString("content_type")),
+                                rs.getLong("size_bytes"), rs.getString("sha256")),
+                        id, username, Timestamp.valueOf(LocalDateTime.now()))
+                .stream().findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Unggahan tidak ditemukan atau sudah kedaluwarsa"));
+
+        try {
+            verify(pending);
+        } catch (BadRequestException ex) {
+            jdbcTemplate.update("DELETE FROM pending_upload WHERE id = ?", id);
+            deleteStaging(pending.stagingKey());
+            throw ex;
+        } catch (SdkException ex) {
+            throw unavailable(ex);
+        }
+
+        // Pending row and staging object stay until the copy is registered, so a retry after a
+        // transient store failure can still complete; copying the same bytes twice is harmless
+        String key = pending.sha256() + pending.type().getExtension();
+        try {
+            if (!storedObjects.touch(key)) {
+                s3Client.copyObject(CopyObjectRequest.builder()
+                        .sourceBucket(bucket).sourceKey(pending.stagingKey())
+                        .destinationBucket(bucket).destinationKey(key)
+                        .contentType(pending.type().getContentType())
+                        .metadataDirective(MetadataDirective.REPLACE)
+                        .build());
+                storedObjects.register(key, pending.sha256(), pending.type().getContentType(), pending.size());
+            }
+        } catch (SdkException ex) {
+            throw unavailable(ex);
+        }
+
+        // A concurrent completion of the same upload may have won in the meantime
+        if (jdbcTemplate.queryForList(CLAIM_SQL, Integer.class, id).isEmpty()) {
+            throw new ResourceNotFoundException("Unggahan tidak ditemukan atau sudah kedaluwarsa");
+        }
+        deleteStaging(pending.stagingKey());
+        return fileStorageService.objectUrl(key);
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeExpired() {
+        List<String> stagingKeys = jdbcTemplate.queryForList(PURGE_SQL, String.class,
+                Timestamp.valueOf(LocalDateTime.now()));
+        stagingKeys.forEach(this::deleteStaging);
+        if (!stagingKeys.isEmpty()) {
+            log.info("Purged {} expired direct uploads", stagingKeys.size());
+        }
+    }
+
+    private void verify(Pending pending) {
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucket).key(pending.stagingKey()).checksumMode(ChecksumMode.ENABLED).build());
+        } catch (NoSuchKeyException ex) {
+            throw new BadRequestException("File belum diunggah ke penyimpanan");
+        }
+        if (head.contentLength() == null || head.contentLength() != pending.size()) {
+            throw new BadRequestException("Ukuran file tidak sesuai dengan yang diajukan");
+        }
+
+        byte[] header;
+        try (InputStream in = s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucket).key(pending.stagingKey()).range("bytes=0-11").build())) {
+            header = in.readNBytes(12);
+        } catch (IOException ex) {
+            throw new ServiceUnavailableException("Penyimpanan file sedang tidak tersedia, silakan coba lagi", ex);
+        }
+        if (ImageType.sniff(header) != pending.type()) {
+            throw new BadRequestException("Isi file tidak sesuai dengan tipe " + pending.type().getContentType());
+        }
+
+        if (!pending.sha256().equals(storedSha256(head, pending.stagingKey()))) {
+            throw new BadRequestException("Hash SHA-256 file tidak sesuai dengan yang diajukan");
+        }
+    }
+
+    /**
+     * The checksum the store verified on PUT when it reports one; otherwise the object is read back
+     * once and hashed here.
+     */
+    private String storedSha256(HeadObjectResponse head, String stagingKey) {
+        String checksum = head.checksumSHA256();
+        // Multipart checksums ("<base64>-<parts>") are a hash of hashes and cannot be compared
+        if (checksum != null && !checksum.contains("-")) {
+            return HexFormat.of().formatHex(Base64.getDecoder().decode(checksum));
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(s3Client.getObject(GetObjectRequest.builder()
+                    .bucket(bucket).key(stagingKey).build()), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException ex) {
+            throw new ServiceUnavailableException("Penyimpanan file sedang tidak tersedia, silakan coba lagi", ex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteStaging(String stagingKey) {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(stagingKey).build());
+        } catch (RuntimeException ex) {
+            log.warn("Failed to delete staging upload {}: {}", stagingKey, ex.getMessage());
+        }
+    }
+
+    private static ServiceUnavailableException unavailable(SdkException ex) {
+        log.warn("Object store unavailable while completing a direct upload: {}", ex.getMessage());
+        return new ServiceUnavailableException("Penyimpanan file sedang tidak tersedia, silakan coba lagi", ex);
+    }
+}
@@ -0,0 +1,90 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.exception.PreconditionFailedException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Weak ETags derived from entity id + version. If-Match is compared on the opaque value
+ * (ignoring the W/ prefix) because these tags are the only validators the API hands out.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    public static String of(Long id, Long version) {
+        return id + "-" + (version != null ? version : 0L);
+    }
+
+    /**
+     * Barang tags also carry a short hash of the photo rendition URLs, which are filled in later
+     * without a version bump, so a cached GET is revalidated once they land. Only If-None-Match
+     * looks at the hash; see {@link #checkIfMatch(String, Barang)}. Must stay in line with
+     * {@code BarangRepository#findVersionTag}.
+     */
+    public static String of(Barang barang) {
+        String tag = of(barang.getId(), barang.getVersion());
+        if (barang.getPhotoThumbUrl() == null || barang.getPhotoMediumUrl() == null) {
+            return tag;
+        }
+        return tag + "-" + md5Hex(barang.getPhotoThumbUrl() + "|" + barang.getPhotoMediumUrl()).substring(0, 8);
+    }
+
+    public static String weak(String versionTag) {
+        return "W/\"" + versionTag + "\"";
+    }
+
+    public static boolean matches(String header, String versionTag) {
+        if (header == null || header.isBlank()) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.equals(versionTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void checkIfMatch(String ifMatch, String currentTag) {
+        if (ifMatch != null && !ifMatch.isBlank() && !matches(ifMatch, currentTag)) {
+            throw new PreconditionFailedException(
+                    "Data telah diubah oleh pengguna lain. Muat ulang data sebelum menyimpan perubahan");
+        }
+    }
+
+    /**
+     * If-Match for a barang compares the version only: a tag read before the renditions landed
+     * (id + version) and one read after (with the rendition hash) both still match.
+     */
+    public static void checkIfMatch(String ifMatch, Barang barang) {
+        String versionTag = of(barang.getId(), barang.getVersion());
+        if (ifMatch != null && !ifMatch.isBlank() && !matches(ifMatch, versionTag)) {
+            checkIfMatch(ifMatch, of(barang));
+        }
+    }
+
+    private static String md5Hex(String value) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
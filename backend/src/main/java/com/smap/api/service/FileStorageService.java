@@ -1,22 +1,62 @@
 package com.smap.api.service;
 
+import com.smap.api.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
+@Slf4j
 @Service
 public class FileStorageService {
 
+    // S3 requires every part but the last to be at least 5 MB
+    private static final int PART_SIZE = 8 * 1024 * 1024;
+    private static final int SNIFF_LENGTH = 12;
+    private static final Pattern LEGACY_UPLOAD_KEY =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}\\.[A-Za-z0-9]+");
+    // Long enough for a client to attach an upload after a slow form, or retry a failed return
+    private static final Duration UNREFERENCED_GRACE = Duration.ofHours(24);
+    private static final int PURGE_BATCH = 500;
+    // Written by ImageRenditionService next to the original; the encoding depends on the platform
+    private static final List<String> RENDITION_KEYS = List.of(
+            "-thumb.webp", "-medium.webp", "-thumb.jpg", "-medium.jpg");
+
     @Value("${smap.minio.bucket}")
     private String bucket;
 
@@ -24,58 +64,245 @@ public class FileStorageService {
     private String publicUrl;
 
     private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+
+    private final Semaphore partBuffers;
+
+    private final StoredObjects storedObjects;
+
+    private final ApplicationEventPublisher eventPublisher;
 
-    public FileStorageService(S3Client s3Client) {
+    /**
+     * Published after objects were deleted from the bucket, so copies of them held elsewhere go too.
+     */
+    public record ObjectsDeleted(List<String> keys) {
+    }
+
+    public FileStorageService(S3Client s3Client, S3Presigner s3Presigner, StoredObjects storedObjects,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${smap.uploads.max-buffered-parts:4}") int maxBufferedParts) {
         this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
+        this.storedObjects = storedObjects;
+        this.eventPublisher = eventPublisher;
+        this.partBuffers = new Semaphore(maxBufferedParts, true);
     }
 
+    /**
+     * Stores an image upload under the SHA-256 of its content, so identical files share one object.
+     * The type is taken from the magic bytes at the start of the stream, not from the client's file
+     * name or content type, and also decides the extension. The part is read once locally to hash
+     * it; a duplicate then costs one row update and no upload, otherwise the part is streamed to the
+     * bucket without another local copy. The upload holds no reference: it lives until the sweep
+     * unless it is {@link #attach attached} within the grace period.
+     */
     public String storeFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             return null;
         }
 
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
+        if (originalFileName.contains("..")) {
+            throw new BadRequestException("Nama file tidak valid: " + originalFileName);
+        }
 
         try {
-            if (originalFileName.contains("..")) {
-                throw new RuntimeException("Sorry! Filename contains invalid path sequence " + originalFileName);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ImageType type;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                type = ImageType.sniff(in.readNBytes(SNIFF_LENGTH));
+                if (type == null) {
+                    throw new BadRequestException("Tipe file tidak didukung, hanya JPEG, PNG, atau WebP");
+                }
+                in.transferTo(OutputStream.nullOutputStream());
             }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String key = sha256 + type.getExtension();
 
-            String fileExtension = "";
-            int dotIndex = originalFileName.lastIndexOf('.');
-            if (dotIndex > 0) {
-                fileExtension = originalFileName.substring(dotIndex);
+            if (!storedObjects.touch(key)) {
+                try (InputStream in = file.getInputStream()) {
+                    upload(key, type.getContentType(), in, file.getSize());
+                }
+                storedObjects.register(key, sha256, type.getContentType(), file.getSize());
             }
+            return objectUrl(key);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-            String newFileName = UUID.randomUUID().toString() + fileExtension;
+    /**
+     * Bodies up to one part go out in a single PUT. Larger ones use a multipart upload whose part
+     * buffers come from a shared budget, so memory stays bounded however many uploads run at once.
+     */
+    private void upload(String key, String contentType, InputStream in, long size) throws IOException {
+        if (size <= PART_SIZE) {
+            s3Client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).contentType(contentType).build(),
+                    RequestBody.fromInputStream(in, size));
+            return;
+        }
 
-            Path tempFile = Files.createTempFile("upload-", newFileName);
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).contentType(contentType).build()).uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            byte[] buffer = acquirePartBuffer();
             try {
-                file.transferTo(tempFile.toFile());
-                String mimeType = Files.probeContentType(tempFile);
-
-                if (mimeType == null || (!mimeType.equals("image/jpeg") && !mimeType.equals("image/png")
-                        && !mimeType.equals("image/webp"))) {
-                    throw new RuntimeException(
-                            "Invalid or unsupported file type for security reasons. Found: " + mimeType);
+                int read;
+                while ((read = in.readNBytes(buffer, 0, PART_SIZE)) > 0) {
+                    int partNumber = parts.size() + 1;
+                    String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                    .bucket(bucket).key(key).uploadId(uploadId).partNumber(partNumber).build(),
+                            RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, read), read)).eTag();
+                    parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
                 }
+            } finally {
+                partBuffers.release();
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException ex) {
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket).key(key).uploadId(uploadId).build());
+            } catch (RuntimeException abortEx) {
+                log.warn("Failed to abort multipart upload {} for {}: {}", uploadId, key, abortEx.getMessage());
+            }
+            throw ex;
+        }
+    }
 
-                PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                        .bucket(bucket)
-                        .key(newFileName)
-                        .contentType(mimeType)
-                        .build();
+    private byte[] acquirePartBuffer() throws IOException {
+        try {
+            partBuffers.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upload buffer");
+        }
+        return new byte[PART_SIZE];
+    }
 
-                s3Client.putObject(putObjectRequest, RequestBody.fromFile(tempFile));
+    /**
+     * Adds a reference from the row that now stores {@code fileUrl}; must run in that row's
+     * transaction. URLs into our bucket that do not name a verified upload are rejected, e.g. a
+     * presigned upload that was never completed or one swept after the grace period. Uploads from
+     * before content addressing and external URLs are not counted.
+     */
+    public void attach(String fileUrl) {
+        String key = countedKey(fileUrl);
+        if (key != null && !storedObjects.attach(key)) {
+            throw new BadRequestException("File belum diverifikasi atau sudah kedaluwarsa, unggah ulang file");
+        }
+    }
 
-            } finally {
-                Files.deleteIfExists(tempFile);
+    /**
+     * Drops the reference of a row that no longer stores {@code fileUrl}, in that row's transaction.
+     * The object itself goes with the sweep once nothing has referenced it for the grace period.
+     */
+    public void detach(String fileUrl) {
+        String key = countedKey(fileUrl);
+        if (key != null) {
+            storedObjects.detach(key);
+        }
+    }
+
+    /**
+     * Deletes objects that have had no reference for {@link #UNREFERENCED_GRACE}, together with
+     * their photo renditions: uploads that were never attached, uploads of a return that failed to
+     * commit, and files whose last owner replaced or deleted them.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeUnreferenced() {
+        Timestamp idleSince = Timestamp.valueOf(LocalDateTime.now().minus(UNREFERENCED_GRACE));
+        int deleted = 0;
+        List<String> keys;
+        do {
+            keys = storedObjects.findUnreferenced(idleSince, PURGE_BATCH);
+            for (String key : keys) {
+                try {
+                    if (storedObjects.delete(key, idleSince, () -> deleteObjects(key))) {
+                        deleted++;
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to delete unreferenced upload {}: {}", key, ex.getMessage());
+                    return;
+                }
             }
+        } while (keys.size() == PURGE_BATCH);
+        if (deleted > 0) {
+            log.info("Deleted {} unreferenced uploads", deleted);
+        }
+    }
 
-            return publicUrl + "/" + bucket + "/" + newFileName;
+    private void deleteObjects(String key) {
+        String base = key.substring(0, key.lastIndexOf('.'));
+        List<String> keys = new ArrayList<>(List.of(key));
+        for (String rendition : RENDITION_KEYS) {
+            keys.add(base + rendition);
+        }
+        try {
+            for (String objectKey : keys) {
+                s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(objectKey).build());
+            }
+        } finally {
+            // Also after a partial failure: dropping a copy of an object that still exists only costs a download
+            eventPublisher.publishEvent(new ObjectsDeleted(keys));
+        }
+    }
 
-        } catch (IOException ex) {
-            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+    // Key of a reference-counted upload, or null for external URLs and uploads from before content addressing
+    private String countedKey(String fileUrl) {
+        String key = objectKey(fileUrl);
+        return key == null || LEGACY_UPLOAD_KEY.matcher(key).matches() ? null : key;
+    }
+
+    public String objectUrl(String key) {
+        return publicUrl + "/" + bucket + "/" + key;
+    }
+
+    /**
+     * Key of an object in this bucket addressed by {@code fileUrl}, or {@code null} for URLs that
+     * point anywhere else.
+     */
+    public String objectKey(String fileUrl) {
+        String prefix = objectUrl("");
+        if (fileUrl == null || !fileUrl.startsWith(prefix) || fileUrl.length() == prefix.length()) {
+            return null;
         }
+        return fileUrl.substring(prefix.length());
+    }
+
+    public InputStream openObject(String key) {
+        return s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+    }
+
+    public void storeObject(String key, byte[] content, String contentType) {
+        s3Client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).contentType(contentType).build(),
+                RequestBody.fromBytes(content));
+    }
+
+    public void storeObject(String key, Path file, String contentType) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .build();
+        s3Client.putObject(putObjectRequest, RequestBody.fromFile(file));
+    }
+
+    public void deleteObject(String key) {
+        s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+    }
+
+    public String presignGetUrl(String key, Duration ttl) {
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .getObjectRequest(GetObjectRequest.builder().bucket(bucket).key(key).build())
+                .build();
+        return s3Presigner.presignGetObject(presignRequest).url().toString();
     }
 }
@@ -0,0 +1,164 @@
+package com.smap.api.service;
+
+import com.smap.api.exception.BadRequestException;
+import com.smap.api.exception.ConflictException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for endpoints that create transactions. The key row is inserted in the
+ * same database transaction as the operation, with ON CONFLICT DO NOTHING: a concurrent duplicate
+ * waits on the unique index until the first request commits or rolls back, then either replays
+ * the stored response or runs normally. A failed operation rolls its key back, so the client can
+ * simply retry. Redis keeps a copy of finished responses for the fast path; when it is
+ * unavailable the database row is used instead.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String REDIS_PREFIX = "smap:idempotency:";
+    private static final Duration TTL = Duration.ofHours(24);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    // The HTTP layer's mapper, so a replayed body reads exactly like the original response
+    private final JsonMapper jsonMapper;
+
+    public record Result<T>(T response, boolean replayed) {
+    }
+
+    private record Stored(String requestHash, String body) {
+    }
+
+    /**
+     * Runs {@code action} once per (username, endpoint, key). Without a key the action just runs.
+     */
+    @Transactional
+    public <T> Result<T> execute(String key, String username, String endpoint, Object request, Class<T> type,
+            Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return new Result<>(action.get(), false);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(HEADER + " maksimal " + MAX_KEY_LENGTH + " karakter");
+        }
+
+        String requestHash = sha256(toJson(request));
+        String redisKey = REDIS_PREFIX + endpoint + ":" + username + ":" + key;
+
+        Stored cached = readRedis(redisKey);
+        if (cached != null) {
+            return replay(cached, requestHash, type);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimed = jdbcTemplate.query(
+                "INSERT INTO idempotency_key (username, endpoint, idem_key, request_hash, created_at, expires_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (username, endpoint, idem_key) DO NOTHING RETURNING id",
+                (rs, rowNum) -> rs.getLong(1),
+                username, endpoint, key, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(now.plus(TTL)));
+
+        if (claimed.isEmpty()) {
+            Stored stored = readDatabase(username, endpoint, key);
+            if (stored == null || stored.body() == null) {
+                throw new ConflictException("Permintaan dengan " + HEADER + " yang sama sedang diproses", null);
+            }
+            writeRedis(redisKey, stored);
+            return replay(stored, requestHash, type);
+        }
+
+        T response = action.get();
+        String body = toJson(response);
+        jdbcTemplate.update("UPDATE idempotency_key SET response_body = ? WHERE id = ?", body, claimed.get(0));
+        Stored stored = new Stored(requestHash, body);
+        AfterCommit.run(() -> writeRedis(redisKey, stored));
+        return new Result<>(response, false);
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM idempotency_key WHERE expires_at < ?",
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private <T> Result<T> replay(Stored stored, String requestHash, Class<T> type) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new BadRequestException(HEADER + " sudah digunakan untuk permintaan yang berbeda");
+        }
+        try {
+            return new Result<>(jsonMapper.readValue(stored.body(), type), true);
+        } catch (JacksonException e) {
+            throw new IllegalStateException("Respons tersimpan tidak dapat dibaca", e);
+        }
+    }
+
+    private Stored readDatabase(String username, String endpoint, String key) {
+        return jdbcTemplate.query(
+                "SELECT request_hash, response_body FROM idempotency_key "
+                        + "WHERE username = ? AND endpoint = ? AND idem_key = ?",
+                (rs, rowNum) -> new Stored(rs.getString(1), rs.getString(2)),
+                username, endpoint, key).stream().findFirst().orElse(null);
+    }
+
+    private Stored readRedis(String redisKey) {
+        try {
+            String value = redisTemplate.opsForValue().get(redisKey);
+            return value != null ? jsonMapper.readValue(value, Stored.class) : null;
+        } catch (RuntimeException ex) {
+            log.warn("Idempotency cache unavailable, falling back to database: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String redisKey, Stored stored) {
+        try {
+            redisTemplate.opsForValue().set(redisKey, jsonMapper.writeValueAsString(stored), TTL);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to cache idempotent response: {}", ex.getMessage());
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return jsonMapper.writeValueAsString(value);
+        } catch (JacksonException e) {
+            throw new IllegalStateException("Gagal membaca permintaan", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
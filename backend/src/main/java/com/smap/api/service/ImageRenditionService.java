@@ -0,0 +1,349 @@
+package com.smap.api.service;
+
+import com.smap.api.config.CacheConfig;
+import com.twelvemonkeys.imageio.metadata.Directory;
+import com.twelvemonkeys.imageio.metadata.Entry;
+import com.twelvemonkeys.imageio.metadata.jpeg.JPEG;
+import com.twelvemonkeys.imageio.metadata.jpeg.JPEGSegment;
+import com.twelvemonkeys.imageio.metadata.jpeg.JPEGSegmentUtil;
+import com.twelvemonkeys.imageio.metadata.tiff.TIFF;
+import com.twelvemonkeys.imageio.metadata.tiff.TIFFReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Produces the thumbnail and medium renditions of barang photos on a small bounded pool and
+ * records their URLs on the barang row. Renditions are re-encoded from decoded pixels, so no
+ * EXIF or other metadata of the original survives; the EXIF orientation of camera JPEGs is applied
+ * to the pixels first. Work lost to a full queue, a failure or a
+ * restart is picked up again by a periodic sweep over rows that have a photo but no renditions.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageRenditionService {
+
+    private static final int THUMB_SIZE = 320;
+    private static final int MEDIUM_SIZE = 1280;
+    // Refuse to decode anything larger; a 40 MP RGB image already needs 160 MB of heap
+    private static final long MAX_PIXELS = 40_000_000L;
+    private static final float QUALITY = 0.8f;
+    private static final int SWEEP_BATCH = 50;
+
+    private static final String UPDATE_SQL = "UPDATE barang SET photo_thumb_url = ?, photo_medium_url = ? "
+            + "WHERE id = ? AND photo_url = ?";
+    private static final String PENDING_SQL = "SELECT id, photo_url FROM barang "
+            + "WHERE photo_url IS NOT NULL AND photo_thumb_url IS NULL AND is_deleted = FALSE "
+            + "ORDER BY id LIMIT ?";
+
+    private final FileStorageService fileStorageService;
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+
+    @Value("${smap.images.workers:2}")
+    private int workers;
+
+    @Value("${smap.images.queue-capacity:100}")
+    private int queueCapacity;
+
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor executor;
+    private Encoding encoding;
+
+    private record Encoding(String formatName, String contentType, String extension) {
+    }
+
+    private record Decoded(BufferedImage image, int orientation) {
+    }
+
+    @PostConstruct
+    void start() {
+        // Keep decoding in memory; ImageIO would otherwise spool streams to temp files
+        ImageIO.setUseCache(false);
+        encoding = new Encoding("webp", "image/webp", ".webp");
+        try {
+            // The WebP writer wraps a bundled native libwebp, which only loads on x64 platforms
+            encode(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        } catch (IOException | RuntimeException | LinkageError ex) {
+            log.warn("WebP encoder unavailable ({}), falling back to JPEG renditions", ex.toString());
+            encoding = new Encoding("jpeg", "image/jpeg", ".jpg");
+        }
+        log.info("Photo renditions are encoded as {}", encoding.formatName());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues rendition of {@code photoUrl} for the barang once the current transaction commits.
+     * Photos stored outside our bucket are left alone.
+     */
+    public void schedule(Long barangId, String photoUrl) {
+        if (fileStorageService.objectKey(photoUrl) == null) {
+            return;
+        }
+        AfterCommit.run(() -> submit(barangId, photoUrl));
+    }
+
+    @Scheduled(fixedDelayString = "${smap.images.sweep-interval-ms:300000}",
+            initialDelayString = "${smap.images.sweep-interval-ms:300000}")
+    public void sweepPending() {
+        List<Object[]> pending = jdbcTemplate.query(PENDING_SQL,
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)}, SWEEP_BATCH);
+        for (Object[] row : pending) {
+            Long barangId = (Long) row[0];
+            String photoUrl = (String) row[1];
+            if (fileStorageService.objectKey(photoUrl) == null) {
+                // Not ours to process; point the renditions at the original so the sweep skips it
+                record(barangId, photoUrl, photoUrl, photoUrl);
+            } else if (!submit(barangId, photoUrl)) {
+                break;
+            }
+        }
+    }
+
+    private boolean submit(Long barangId, String photoUrl) {
+        if (!inFlight.add(barangId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(barangId, photoUrl);
+                } finally {
+                    inFlight.remove(barangId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            inFlight.remove(barangId);
+            log.debug("Rendition queue full, barang {} is left to the sweep", barangId);
+            return false;
+        }
+    }
+
+    private void process(Long barangId, String photoUrl) {
+        String key = fileStorageService.objectKey(photoUrl);
+        Decoded decoded;
+        try (InputStream in = fileStorageService.openObject(key)) {
+            decoded = decode(in);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not read photo {} of barang {}: {}", key, barangId, ex.getMessage());
+            return;
+        }
+        if (decoded == null) {
+            // Undecodable or oversized: serve the original rather than retrying on every sweep
+            log.warn("Photo {} of barang {} cannot be processed, using the original", key, barangId);
+            record(barangId, photoUrl, photoUrl, photoUrl);
+            return;
+        }
+
+        try {
+            BufferedImage original = orient(decoded.image(), decoded.orientation());
+            String base = key.contains(".") ? key.substring(0, key.lastIndexOf('.')) : key;
+            String thumbKey = base + "-thumb" + encoding.extension();
+            String mediumKey = base + "-medium" + encoding.extension();
+            fileStorageService.storeObject(mediumKey, encode(scale(original, MEDIUM_SIZE)), encoding.contentType());
+            fileStorageService.storeObject(thumbKey, encode(scale(original, THUMB_SIZE)), encoding.contentType());
+            record(barangId, photoUrl, fileStorageService.objectUrl(thumbKey), fileStorageService.objectUrl(mediumKey));
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to store renditions of photo {} of barang {}: {}", key, barangId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Only applied while the barang still has the same photo, so a slow job cannot attach renditions
+     * of a replaced picture. The row version is not bumped, since renditions are derived data: the
+     * ETag's rendition hash still changes for If-None-Match, but If-Match only compares the version.
+     */
+    private void record(Long barangId, String photoUrl, String thumbUrl, String mediumUrl) {
+        int updated = jdbcTemplate.update(UPDATE_SQL, thumbUrl, mediumUrl, barangId, photoUrl);
+        if (updated > 0) {
+            Cache cache = cacheManager.getCache(CacheConfig.BARANG);
+            if (cache != null) {
+                cache.evict(barangId);
+            }
+        }
+    }
+
+    private static Decoded decode(InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                int orientation = 1;
+                if ("jpeg".equalsIgnoreCase(reader.getFormatName())) {
+                    orientation = readOrientation(input);
+                    input.seek(0);
+                }
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    return null;
+                }
+                return new Decoded(reader.read(0), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * EXIF orientation (1-8) from the APP1 segment, which precedes the image data, or 1 when
+     * there is none or it cannot be read.
+     */
+    private static int readOrientation(ImageInputStream input) {
+        try {
+            List<JPEGSegment> segments = JPEGSegmentUtil.readSegments(input, JPEG.APP1, "Exif");
+            if (segments.isEmpty()) {
+                return 1;
+            }
+            InputStream data = segments.get(0).data();
+            // The "Exif" identifier is followed by a pad byte before the TIFF structure
+            data.read();
+            try (ImageInputStream exif = ImageIO.createImageInputStream(data)) {
+                Directory directory = new TIFFReader().read(exif);
+                Entry entry = directory.getEntryById(TIFF.TAG_ORIENTATION);
+                if (entry != null && entry.getValue() instanceof Number value
+                        && value.intValue() >= 1 && value.intValue() <= 8) {
+                    return value.intValue();
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Ignoring unreadable EXIF data: {}", ex.getMessage());
+        }
+        return 1;
+    }
+
+    /**
+     * Turns the stored pixels upright for an EXIF orientation; 2-8 are the mirrored and rotated
+     * variants in the order of the EXIF specification.
+     */
+    private static BufferedImage orient(BufferedImage source, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return source;
+        }
+        int width = source.getWidth();
+        int height = source.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> transform.setTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> transform.setTransform(-1, 0, 0, -1, width, height);
+            case 4 -> transform.setTransform(1, 0, 0, -1, 0, height);
+            case 5 -> transform.setTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> transform.setTransform(0, 1, -1, 0, height, 0);
+            case 7 -> transform.setTransform(0, -1, -1, 0, height, width);
+            default -> transform.setTransform(0, -1, 1, 0, 0, width);
+        }
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, target.getWidth(), target.getHeight());
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Fits the image into a {@code size} square, halving in steps first so large camera photos do
+     * not alias. Always returns an opaque RGB image, which every encoder accepts.
+     */
+    private static BufferedImage scale(BufferedImage source, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(encoding.formatName()).next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(QUALITY);
+            }
+            // No metadata argument: the rendition carries pixels only
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
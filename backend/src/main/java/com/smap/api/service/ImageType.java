@@ -0,0 +1,62 @@
+package com.smap.api.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Image formats accepted for upload, recognised by their leading magic bytes.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageType {
+    JPEG("image/jpeg", ".jpg"),
+    PNG("image/png", ".png"),
+    WEBP("image/webp", ".webp");
+
+    private static final byte[] PNG_SIGNATURE = {
+            (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final String contentType;
+    private final String extension;
+
+    public static ImageType fromContentType(String contentType) {
+        for (ImageType type : values()) {
+            if (type.contentType.equalsIgnoreCase(contentType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the type whose signature starts {@code header}, or {@code null}. Twelve bytes are
+     * enough to tell all supported formats apart.
+     */
+    public static ImageType sniff(byte[] header) {
+        if (header.length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8
+                && (header[2] & 0xFF) == 0xFF) {
+            return JPEG;
+        }
+        if (startsWith(header, 0, PNG_SIGNATURE)) {
+            return PNG;
+        }
+        // RIFF container with a WEBP form type; bytes 4-7 hold the chunk size
+        if (startsWith(header, 0, new byte[]{'R', 'I', 'F', 'F'})
+                && startsWith(header, 8, new byte[]{'W', 'E', 'B', 'P'})) {
+            return WEBP;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        if (data.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
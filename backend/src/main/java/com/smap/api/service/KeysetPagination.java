@@ -0,0 +1,96 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.CursorPagedResponse;
+import com.smap.api.domain.dto.PageCursor;
+import com.smap.api.exception.BadRequestException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Keyset (seek) pagination on top of Spring Data {@link Window}. Only registered sort keys
+ * (NOT NULL columns backed by a (column, id) index) are accepted.
+ */
+public class KeysetPagination {
+
+    private static final String ID = "id";
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final Map<String, Function<String, ?>> sortKeys;
+
+    public KeysetPagination(Map<String, Function<String, ?>> sortKeys) {
+        this.sortKeys = sortKeys;
+    }
+
+    public Query query(String after, int size, String sortBy, String sortDir) {
+        Limit limit = Limit.of(Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+
+        if (after == null || after.isBlank()) {
+            Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC
+                    : Sort.Direction.DESC;
+            requireSortKey(sortBy);
+            return new Query(sortBy, direction, sort(sortBy, direction), ScrollPosition.keyset(), limit);
+        }
+
+        PageCursor cursor = PageCursor.decode(after);
+        Function<String, ?> parser = requireSortKey(cursor.sortBy());
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if (!ID.equals(cursor.sortBy())) {
+            try {
+                keys.put(cursor.sortBy(), parser.apply(cursor.value()));
+            } catch (DateTimeParseException | IllegalArgumentException ex) {
+                throw new BadRequestException("Cursor tidak valid", ex);
+            }
+        }
+        keys.put(ID, cursor.id());
+        return new Query(cursor.sortBy(), cursor.direction(), sort(cursor.sortBy(), cursor.direction()),
+                ScrollPosition.forward(keys), limit);
+    }
+
+    public <E, T> CursorPagedResponse<T> toResponse(Query query, Window<E> window, Function<E, T> mapper,
+            Long totalElements) {
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            Object id = position.getKeys().get(ID);
+            Object value = position.getKeys().get(query.sortBy());
+            nextCursor = new PageCursor(query.sortBy(), query.direction(), asString(value),
+                    ((Number) id).longValue()).encode();
+        }
+        return CursorPagedResponse.<T>builder()
+                .content(window.map(mapper).getContent())
+                .pageSize(query.limit().max())
+                .nextCursor(nextCursor)
+                .last(nextCursor == null)
+                .totalElements(totalElements)
+                .build();
+    }
+
+    private Function<String, ?> requireSortKey(String sortBy) {
+        Function<String, ?> parser = sortKeys.get(sortBy);
+        if (parser == null) {
+            throw new BadRequestException("Kolom sort '" + sortBy + "' tidak didukung untuk cursor pagination. "
+                    + "Gunakan salah satu dari " + sortKeys.keySet());
+        }
+        return parser;
+    }
+
+    private static Sort sort(String sortBy, Sort.Direction direction) {
+        Sort sort = Sort.by(direction, sortBy);
+        return ID.equals(sortBy) ? sort : sort.and(Sort.by(direction, ID));
+    }
+
+    private static String asString(Object value) {
+        return value instanceof Enum<?> e ? e.name() : String.valueOf(value);
+    }
+
+    public record Query(String sortBy, Sort.Direction direction, Sort sort, ScrollPosition position, Limit limit) {
+    }
+}
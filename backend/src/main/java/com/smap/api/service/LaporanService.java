@@ -1,59 +1,178 @@
 package com.smap.api.service;
 
+import com.smap.api.domain.dto.LaporanFilter;
 import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.entity.Peminjaman;
+import com.smap.api.domain.entity.PeminjamanDetail;
+import com.smap.api.domain.entity.Perawatan;
+import com.smap.api.domain.entity.PerawatanDetail;
+import com.smap.api.domain.entity.ReportJob;
 import com.smap.api.repository.BarangRepository;
+import com.smap.api.repository.PeminjamanRepository;
+import com.smap.api.repository.PerawatanRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LaporanService {
 
+    private static final List<String> BARANG_HEADER = List.of(
+            "ID", "Kode Barang", "NUP", "Nama Barang", "Merk/Type", "Kondisi", "Status", "Lokasi",
+            "Tanggal Perolehan");
+
+    private static final List<String> PEMINJAMAN_HEADER = List.of(
+            "No Register", "Tanggal Pinjam", "Rencana Kembali", "Tanggal Kembali", "Status", "Peminjam",
+            "NIP Peminjam", "Bidang", "Keperluan", "Kode Barang", "Nama Barang", "NUP", "Kondisi Pinjam",
+            "Kondisi Kembali");
+
+    private static final List<String> PERAWATAN_HEADER = List.of(
+            "No Register", "Hal", "Tanggal Service", "Rencana Selesai", "Tanggal Selesai", "Status", "Diajukan Oleh",
+            "Bidang", "Kode Barang", "Nama Barang", "Gejala", "Perbaikan", "Garansi", "Kondisi Kembali",
+            "Status Barang");
+
+    private static final int PROGRESS_INTERVAL = 5000;
+    private static final int CLEAR_INTERVAL = 500;
+
     private final BarangRepository barangRepository;
+    private final PeminjamanRepository peminjamanRepository;
+    private final PerawatanRepository perawatanRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
+    /**
+     * Streams a report straight to {@code out}. Rows come from a server-side cursor and the
+     * persistence context is cleared as they are written, so heap use does not grow with the row
+     * count whatever the format. The running row count goes to {@code progress} every
+     * {@value #PROGRESS_INTERVAL} rows; returns the number of rows written.
+     */
     @Transactional(readOnly = true)
-    public ByteArrayInputStream exportDaftarBarangCsv() {
-        List<Barang> barangList = barangRepository.findAll();
-
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-                CSVPrinter csvPrinter = new CSVPrinter(new PrintWriter(out), CSVFormat.DEFAULT.builder().setHeader(
-                        "ID", "Kode Barang", "NUP", "Nama Barang", "Merk/Type", "Kondisi", "Status", "Lokasi",
-                        "Tanggal Perolehan").build())) {
-
-            for (Barang b : barangList) {
-                if (!b.isDeleted()) {
-                    List<String> data = Arrays.asList(
-                            String.valueOf(b.getId()),
-                            b.getKodeBarang(),
-                            b.getNup() != null ? b.getNup() : "-",
-                            b.getNamaBarang(),
-                            b.getMerkType() != null ? b.getMerkType() : "-",
-                            b.getKondisi().name(),
-                            b.getStatus().name(),
-                            b.getLokasi() != null ? b.getLokasi() : "-",
-                            b.getTglPerolehan() != null ? b.getTglPerolehan().toString() : "-");
-                    csvPrinter.printRecord(data);
+    public long export(ReportJob.ReportType type, LaporanFilter filter, OutputStream out, LongConsumer progress) {
+        filter.validate();
+        ReportJob.Dataset dataset = type.getDataset();
+        return switch (dataset) {
+            case BARANG -> write(type,
+                    barangRepository.streamForReport(filter.getFrom(), filter.getTo()),
+                    BARANG_HEADER, LaporanService::barangRow, out, progress);
+            case PEMINJAMAN -> write(type,
+                    peminjamanRepository.streamDetailsForReport(filter.getFrom(), filter.getTo(), filter.bidangOrNull()),
+                    PEMINJAMAN_HEADER, LaporanService::peminjamanRow, out, progress);
+            case PERAWATAN -> write(type,
+                    perawatanRepository.streamDetailsForReport(filter.getFrom(), filter.getTo(), filter.bidangOrNull()),
+                    PERAWATAN_HEADER, LaporanService::perawatanRow, out, progress);
+        };
+    }
+
+    public long countRows(ReportJob.Dataset dataset, LaporanFilter filter) {
+        return switch (dataset) {
+            case BARANG -> barangRepository.countForReport(filter.getFrom(), filter.getTo());
+            case PEMINJAMAN -> peminjamanRepository.countDetailsForReport(filter.getFrom(), filter.getTo(),
+                    filter.bidangOrNull());
+            case PERAWATAN -> perawatanRepository.countDetailsForReport(filter.getFrom(), filter.getTo(),
+                    filter.bidangOrNull());
+        };
+    }
+
+    public String dataVersion(ReportJob.Dataset dataset) {
+        return String.valueOf(switch (dataset) {
+            case BARANG -> barangRepository.findDataVersion();
+            case PEMINJAMAN -> peminjamanRepository.findDataVersion();
+            case PERAWATAN -> perawatanRepository.findDataVersion();
+        });
+    }
+
+    private <T> long write(ReportJob.ReportType type, Stream<T> rows, List<String> header,
+            Function<T, List<?>> mapper, OutputStream out, LongConsumer progress) {
+        long written = 0;
+        try (rows; ReportWriter writer = ReportWriter.open(type.getFormat(), out,
+                type.getDataset().getSheetName(), header)) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.row(mapper.apply(iterator.next()));
+                written++;
+                // Transaction rows pull in their header, user and barang, so clear rather than detach
+                if (written % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+                if (written % PROGRESS_INTERVAL == 0) {
+                    progress.accept(written);
                 }
             }
+        } catch (IOException | UncheckedIOException e) {
+            // For downloads this is usually the client going away; the response is already committed
+            log.error("Error generating {} report: ", type, e);
+            throw new RuntimeException("Gagal melakukan export laporan: " + e.getMessage());
+        }
+        return written;
+    }
 
-            csvPrinter.flush();
-            return new ByteArrayInputStream(out.toByteArray());
+    private static List<?> barangRow(Barang b) {
+        return Arrays.asList(
+                b.getId(),
+                b.getKodeBarang(),
+                b.getNup(),
+                b.getNamaBarang(),
+                b.getMerkType(),
+                b.getKondisi().name(),
+                b.getStatus().name(),
+                b.getLokasi(),
+                b.getTglPerolehan());
+    }
 
-        } catch (IOException e) {
-            log.error("Error generating CSV: ", e);
-            throw new RuntimeException("Gagal melakukan export CSV: " + e.getMessage());
-        }
+    private static List<?> peminjamanRow(PeminjamanDetail d) {
+        Peminjaman p = d.getPeminjaman();
+        Barang b = d.getBarang();
+        return Arrays.asList(
+                p.getNoRegister(),
+                p.getTglPinjam(),
+                p.getTglKembaliRencana(),
+                p.getTglKembaliAktual(),
+                p.getStatus() != null ? p.getStatus().name() : null,
+                p.getPeminjam().getName(),
+                p.getPeminjam().getNip(),
+                p.getPeminjam().getBidang(),
+                p.getKeperluan(),
+                b.getKodeBarang(),
+                b.getNamaBarang(),
+                b.getNup(),
+                d.getKondisiPinjam() != null ? d.getKondisiPinjam().name() : null,
+                d.getKondisiKembali() != null ? d.getKondisiKembali().name() : null);
+    }
+
+    private static List<?> perawatanRow(PerawatanDetail d) {
+        Perawatan p = d.getPerawatan();
+        Barang b = d.getBarang();
+        return Arrays.asList(
+                p.getNoRegister(),
+                p.getHal(),
+                p.getTglService(),
+                p.getTglSelesaiRencana(),
+                p.getTglSelesaiAktual(),
+                p.getStatus() != null ? p.getStatus().name() : null,
+                p.getDiajukanOleh().getName(),
+                p.getDiajukanOleh().getBidang(),
+                b.getKodeBarang(),
+                b.getNamaBarang(),
+                d.getGejala(),
+                d.getPerbaikan(),
+                d.getGaransi(),
+                d.getKondisiKembali() != null ? d.getKondisiKembali().name() : null,
+                d.getStatus() != null ? d.getStatus().name() : null);
     }
 }
@@ -0,0 +1,90 @@
+package com.smap.api.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Keeps reports in a directory of their own, outside the publicly served uploads directory; they
+ * are only handed out by {@code GET /laporan/jobs/{id}/download} to authenticated users.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "smap.reports.storage", havingValue = "local")
+public class LocalReportStorage implements ReportStorage {
+
+    // Reports used to be written here, where GET /files/** serves anything without a login
+    private static final Path LEGACY_ROOT = Paths.get("uploads");
+    private static final Pattern REPORT_FILE = Pattern.compile("laporan-\\d+-[a-z_]+\\.[a-z]+");
+
+    private final Path root;
+
+    public LocalReportStorage(@Value("${smap.reports.local-dir:reports}") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(root);
+        if (!Files.isDirectory(LEGACY_ROOT)) {
+            return;
+        }
+        List<Path> legacy;
+        try (Stream<Path> listing = Files.list(LEGACY_ROOT)) {
+            legacy = listing.filter(file -> REPORT_FILE.matcher(file.getFileName().toString()).matches()).toList();
+        }
+        for (Path file : legacy) {
+            Files.move(file, root.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (!legacy.isEmpty()) {
+            log.info("Moved {} reports out of the public uploads directory into {}", legacy.size(), root);
+        }
+    }
+
+    @Override
+    public void store(String key, Path file, String contentType) {
+        try {
+            Files.copy(file, root.resolve(key), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String downloadUrl(Long jobId, String key) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path("/laporan/jobs/{id}/download")
+                .buildAndExpand(jobId).toUriString();
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        Path file = root.resolve(key).normalize();
+        return file.startsWith(root) && Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Optional<Path> file = localFile(key);
+            if (file.isPresent()) {
+                Files.deleteIfExists(file.get());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
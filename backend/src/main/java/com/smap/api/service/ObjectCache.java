@@ -0,0 +1,381 @@
+package com.smap.api.service;
+
+import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Read-through LRU cache of uploaded objects on local disk. Upload keys never change content, so
+ * an entry stays valid until evicted or until the object is deleted from the store; concurrent
+ * misses on one key share a single download. The index is rebuilt from the directory on startup,
+ * oldest files first.
+ *
+ * <p>A node that sweeps objects drops its copies and broadcasts the keys on a Redis channel as
+ * {@code nodeId|key,key,...} so its peers drop theirs; an hourly check against stored_object
+ * catches what was missed while Redis was unreachable.
+ */
+@Slf4j
+@Service
+public class ObjectCache implements MessageListener {
+
+    public static final String EVICTIONS_CHANNEL = "smap:object-cache:evictions";
+
+    // Only upload names (content-addressed or legacy UUID); other objects in the bucket, such as
+    // reports, are handed out through presigned URLs and must not be readable here
+    private static final Pattern UPLOAD_KEY = Pattern.compile(
+            "(?:[0-9a-f]{64}(?:-thumb|-medium)?|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})"
+                    + "\\.[A-Za-z0-9]+");
+    // Content-addressed uploads and their renditions, by the hash they are registered under
+    private static final Pattern CONTENT_KEY = Pattern.compile("([0-9a-f]{64})(?:-thumb|-medium)?\\.[A-Za-z0-9]+");
+    private static final String UNAVAILABLE = "Penyimpanan file sedang tidak tersedia, silakan coba lagi";
+    private static final String PART_SUFFIX = ".part";
+    // Entries read this recently are kept even over the cap, so a response that is still about
+    // to open the file does not find it deleted
+    private static final long EVICTION_GRACE_MS = 30_000;
+
+    public record CachedObject(Path path, long size, long lastModified) {
+    }
+
+    private record Entry(Path path, long size, long lastModified, long lastAccess) {
+    }
+
+    private final FileStorageService fileStorageService;
+    private final StoredObjects storedObjects;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Path directory;
+    private final long maxBytes;
+    private final long fillTimeoutMs;
+
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> fills = new ConcurrentHashMap<>();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesFromCache;
+    private final Counter bytesFromStore;
+    private final Counter evictions;
+
+    public ObjectCache(FileStorageService fileStorageService, StoredObjects storedObjects,
+            StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${smap.object-cache.dir:${java.io.tmpdir}/smap-object-cache}") String directory,
+            @Value("${smap.object-cache.max-bytes:2147483648}") long maxBytes,
+            @Value("${smap.object-cache.fill-timeout-ms:10000}") long fillTimeoutMs) {
+        this.fileStorageService = fileStorageService;
+        this.storedObjects = storedObjects;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.fillTimeoutMs = fillTimeoutMs;
+
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.bytesFromCache = bytes(meterRegistry, "cache");
+        this.bytesFromStore = bytes(meterRegistry, "store");
+        this.evictions = Counter.builder("smap.object_cache.evictions")
+                .description("Objects removed from the local object cache to stay under its size cap")
+                .register(meterRegistry);
+        Gauge.builder("smap.object_cache.size", cachedBytes, AtomicLong::get)
+                .description("Bytes currently held by the local object cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("smap.object_cache.hit_ratio", this, ObjectCache::hitRatio)
+                .description("Share of object cache lookups answered from local disk")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("smap.object_cache.gets")
+                .description("Object cache lookups by whether the object was already on local disk")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter bytes(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("smap.object_cache.bytes")
+                .description("Bytes of cached objects handed out, by where they were read from")
+                .tag("source", source)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVICTIONS_CHANNEL));
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        List<Map.Entry<Path, BasicFileAttributes>> existing = new ArrayList<>();
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(PART_SUFFIX)) {
+                // Left behind by a download that did not finish
+                Files.deleteIfExists(file);
+            } else {
+                existing.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+        }
+        existing.sort(Comparator.comparing(e -> e.getValue().lastModifiedTime()));
+        synchronized (index) {
+            for (Map.Entry<Path, BasicFileAttributes> e : existing) {
+                BasicFileAttributes attributes = e.getValue();
+                long modified = attributes.lastModifiedTime().toMillis();
+                index.put(e.getKey().getFileName().toString(),
+                        new Entry(e.getKey(), attributes.size(), modified, modified));
+                cachedBytes.addAndGet(attributes.size());
+            }
+            evictOverCap();
+        }
+        log.info("Object cache at {} holds {} objects, {} bytes", directory, index.size(), cachedBytes.get());
+    }
+
+    public static boolean isCacheable(String key) {
+        return key != null && UPLOAD_KEY.matcher(key).matches();
+    }
+
+    /**
+     * Returns the object from local disk, downloading it first on a miss. Waiting for another
+     * request's download is bounded by the fill timeout; an unreachable or slow object store
+     * surfaces as {@link ServiceUnavailableException} instead of a hung request.
+     */
+    public CachedObject get(String key) {
+        if (!isCacheable(key)) {
+            throw new ResourceNotFoundException("File tidak ditemukan");
+        }
+
+        Entry entry = lookup(key);
+        if (entry != null) {
+            hits.increment();
+            hitCount.incrementAndGet();
+            bytesFromCache.increment(entry.size());
+            return new CachedObject(entry.path(), entry.size(), entry.lastModified());
+        }
+
+        misses.increment();
+        missCount.incrementAndGet();
+        CompletableFuture<Entry> fill = new CompletableFuture<>();
+        CompletableFuture<Entry> running = fills.putIfAbsent(key, fill);
+        if (running == null) {
+            try {
+                entry = download(key);
+                fill.complete(entry);
+            } catch (RuntimeException ex) {
+                fill.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                fills.remove(key, fill);
+            }
+        } else {
+            entry = await(running);
+        }
+        bytesFromStore.increment(entry.size());
+        return new CachedObject(entry.path(), entry.size(), entry.lastModified());
+    }
+
+    /**
+     * Drops this node's copies of objects deleted from the store and tells the other replicas to
+     * drop theirs.
+     */
+    @EventListener
+    public void onObjectsDeleted(FileStorageService.ObjectsDeleted event) {
+        evict(event.keys());
+        try {
+            redisTemplate.convertAndSend(EVICTIONS_CHANNEL, nodeId + "|" + String.join(",", event.keys()));
+        } catch (RuntimeException ex) {
+            // Peers drop their copies on their next reconcile instead
+            log.warn("Failed to broadcast deleted objects {}: {}", event.keys(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        evict(List.of(parts[1].split(",")));
+    }
+
+    /**
+     * Drops cached content-addressed objects whose stored_object row is gone, i.e. that were swept
+     * while this node missed the broadcast.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void reconcile() {
+        Map<String, List<String>> keysByHash = new HashMap<>();
+        synchronized (index) {
+            for (String key : index.keySet()) {
+                Matcher matcher = CONTENT_KEY.matcher(key);
+                if (matcher.matches()) {
+                    keysByHash.computeIfAbsent(matcher.group(1), hash -> new ArrayList<>()).add(key);
+                }
+            }
+        }
+        if (keysByHash.isEmpty()) {
+            return;
+        }
+        keysByHash.keySet().removeAll(storedObjects.findExistingHashes(keysByHash.keySet()));
+        List<String> deleted = keysByHash.values().stream().flatMap(List::stream).toList();
+        if (!deleted.isEmpty()) {
+            evict(deleted);
+            log.info("Dropped {} cached objects that are no longer in the store", deleted.size());
+        }
+    }
+
+    private void evict(Collection<String> keys) {
+        synchronized (index) {
+            for (String key : keys) {
+                Entry entry = index.remove(key);
+                if (entry != null) {
+                    cachedBytes.addAndGet(-entry.size());
+                    deleteCached(entry.path());
+                }
+            }
+        }
+    }
+
+    private Entry lookup(String key) {
+        synchronized (index) {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!Files.exists(entry.path())) {
+                // Removed behind our back; forget it and download again
+                index.remove(key);
+                cachedBytes.addAndGet(-entry.size());
+                return null;
+            }
+            Entry touched = new Entry(entry.path(), entry.size(), entry.lastModified(), System.currentTimeMillis());
+            index.put(key, touched);
+            return touched;
+        }
+    }
+
+    private Entry await(CompletableFuture<Entry> running) {
+        try {
+            return running.get(fillTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ServiceUnavailableException(UNAVAILABLE, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException(UNAVAILABLE, ex);
+        }
+    }
+
+    private Entry download(String key) {
+        Path target = directory.resolve(key);
+        Path part = directory.resolve(key + "." + UUID.randomUUID() + PART_SUFFIX);
+        try {
+            try (InputStream in = fileStorageService.openObject(key)) {
+                Files.copy(in, part);
+            } catch (NoSuchKeyException ex) {
+                throw new ResourceNotFoundException("File tidak ditemukan");
+            } catch (SdkException ex) {
+                log.warn("Object store unavailable while fetching {}: {}", key, ex.getMessage());
+                throw new ServiceUnavailableException(UNAVAILABLE, ex);
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long now = System.currentTimeMillis();
+            Entry entry = new Entry(target, Files.size(target), Files.getLastModifiedTime(target).toMillis(), now);
+            synchronized (index) {
+                Entry previous = index.put(key, entry);
+                cachedBytes.addAndGet(entry.size() - (previous != null ? previous.size() : 0));
+                evictOverCap();
+            }
+            return entry;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                log.warn("Could not delete partial cache file {}", part);
+            }
+        }
+    }
+
+    // Caller holds the index lock; iteration runs from least to most recently used
+    private void evictOverCap() {
+        long cutoff = System.currentTimeMillis() - EVICTION_GRACE_MS;
+        Iterator<Map.Entry<String, Entry>> iterator = index.entrySet().iterator();
+        while (cachedBytes.get() > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.lastAccess() > cutoff) {
+                continue;
+            }
+            iterator.remove();
+            cachedBytes.addAndGet(-entry.size());
+            evictions.increment();
+            deleteCached(entry.path());
+        }
+    }
+
+    private void deleteCached(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.warn("Could not delete evicted cache file {}: {}", path, ex.getMessage());
+        }
+    }
+
+    private double hitRatio() {
+        long hitTotal = hitCount.get();
+        long total = hitTotal + missCount.get();
+        return total == 0 ? 0.0 : (double) hitTotal / total;
+    }
+}
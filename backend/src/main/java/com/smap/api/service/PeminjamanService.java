@@ -1,9 +1,12 @@
 package com.smap.api.service;
 
+import com.smap.api.config.CacheConfig;
+import com.smap.api.domain.dto.CursorPagedResponse;
 import com.smap.api.domain.dto.PagedResponse;
 import com.smap.api.domain.dto.PeminjamanKembaliRequest;
 import com.smap.api.domain.dto.PeminjamanRequest;
 import com.smap.api.domain.dto.PeminjamanResponse;
+import com.smap.api.domain.entity.AssetEvent;
 import com.smap.api.domain.entity.Barang;
 import com.smap.api.domain.entity.Peminjaman;
 import com.smap.api.domain.entity.PeminjamanDetail;
@@ -13,27 +16,45 @@ import com.smap.api.repository.BarangRepository;
 import com.smap.api.repository.PeminjamanRepository;
 import com.smap.api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PeminjamanService {
 
+    private static final KeysetPagination KEYSET = new KeysetPagination(Map.of(
+            "id", Long::valueOf,
+            "createdAt", LocalDateTime::parse,
+            "tglPinjam", LocalDate::parse,
+            "noRegister", Function.identity()));
+
     private final PeminjamanRepository peminjamanRepository;
     private final BarangRepository barangRepository;
+    private final BarangReservations barangReservations;
     private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
+    private final BarangFacetService barangFacetService;
+    private final CacheEvictions cacheEvictions;
+    private final DashboardCounters dashboardCounters;
+    private final AssetEventRecorder assetEventRecorder;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional(readOnly = true)
     public PagedResponse<PeminjamanResponse> getAllPeminjaman(int page, int size, String sortDir, String sortBy,
@@ -52,7 +73,39 @@ public class PeminjamanService {
             peminjamanPage = peminjamanRepository.findByPeminjamAndDeletedFalse(currentUser, pageable);
         }
 
-        return PagedResponse.of(peminjamanPage.map(PeminjamanResponse::fromEntity));
+        return PagedResponse.of(peminjamanPage.map(withDetails(peminjamanPage.getContent())));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<PeminjamanResponse> getAllPeminjamanKeyset(String after, int size, String sortDir,
+            String sortBy, boolean withTotal, String username) {
+        KeysetPagination.Query query = KEYSET.query(after, size, sortBy, sortDir);
+
+        User currentUser = userRepository.findByUsernameAndDeletedFalse(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User tidak ditemukan"));
+
+        Window<Peminjaman> window;
+        Long total = null;
+        if (currentUser.getRole() == User.Role.ADMIN) {
+            window = peminjamanRepository.findAllBy(query.position(), query.sort(), query.limit());
+            if (withTotal) {
+                total = peminjamanRepository.count();
+            }
+        } else {
+            window = peminjamanRepository.findByPeminjamAndDeletedFalse(currentUser, query.position(), query.sort(),
+                    query.limit());
+            if (withTotal) {
+                total = peminjamanRepository.countByPeminjamAndDeletedFalse(currentUser);
+            }
+        }
+
+        return KEYSET.toResponse(query, window, withDetails(window.getContent()), total);
+    }
+
+    @Transactional(readOnly = true)
+    public String getPeminjamanVersionTag(Long id) {
+        return peminjamanRepository.findVersionTag(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Peminjaman dengan ID " + id + " tidak ditemukan"));
     }
 
     @Transactional(readOnly = true)
@@ -65,7 +118,6 @@ public class PeminjamanService {
         return PeminjamanResponse.fromEntity(peminjaman);
     }
 
-    @CacheEvict(value = "dashboardData", allEntries = true)
     @Transactional
     public PeminjamanResponse pinjamBarang(PeminjamanRequest request, String username) {
         User peminjam = userRepository.findByUsernameAndDeletedFalse(username)
@@ -85,39 +137,79 @@ public class PeminjamanService {
                 .status(Peminjaman.StatusPeminjaman.DIPINJAM)
                 .build();
 
-        List<PeminjamanDetail> details = new ArrayList<>();
-        for (Long barangId : request.getBarangIds()) {
-            Barang barang = barangRepository.findById(barangId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Barang ID " + barangId + " tidak ditemukan"));
-
-            if (barang.isDeleted() || !barang.getStatus().equals(Barang.StatusBarang.TERSEDIA)) {
-                throw new IllegalStateException("Barang " + barang.getNamaBarang() + " tidak tersedia untuk dipinjam");
-            }
-
-            barang.setStatus(Barang.StatusBarang.DIPINJAM);
-            barangRepository.save(barang);
+        Map<Long, Barang> barangById = barangReservations.reserve(request.getBarangIds(),
+                Barang.StatusBarang.DIPINJAM, "dipinjam", username);
 
-            PeminjamanDetail detail = PeminjamanDetail.builder()
+        List<PeminjamanDetail> details = new ArrayList<>(barangById.size());
+        for (Barang barang : barangById.values()) {
+            details.add(PeminjamanDetail.builder()
                     .peminjaman(peminjaman)
                     .barang(barang)
                     .kondisiPinjam(barang.getKondisi())
                     .keterangan(request.getKeterangan())
-                    .build();
-            details.add(detail);
+                    .build());
         }
 
         peminjaman.setDetailBarang(details);
         Peminjaman saved = peminjamanRepository.save(peminjaman);
+        barangFacetService.evict(BarangFacetService.Dimension.STATUS);
+        cacheEvictions.evictAfterCommit(CacheConfig.BARANG, barangById.keySet());
+        dashboardCounters.barangMoved(Map.of(Barang.StatusBarang.TERSEDIA, (long) details.size()),
+                Barang.StatusBarang.DIPINJAM);
+        dashboardCounters.peminjamanAktif(1);
+        assetEventRecorder.record(saved.getDetailBarang().stream()
+                .map(detail -> AssetEvent.builder()
+                        .barangId(detail.getBarang().getId())
+                        .eventType(AssetEvent.EventType.DIPINJAM)
+                        .statusFrom(Barang.StatusBarang.TERSEDIA)
+                        .statusTo(Barang.StatusBarang.DIPINJAM)
+                        .kondisiTo(detail.getKondisiPinjam())
+                        .peminjamanId(saved.getId())
+                        .noRegister(saved.getNoRegister()))
+                .toList());
         return PeminjamanResponse.fromEntity(saved);
     }
 
-    @CacheEvict(value = "dashboardData", allEntries = true)
-    @Transactional
+    /**
+     * Completes a loan. The berita acara upload happens before and outside the database
+     * transaction, so no connection or row lock is held during the object-storage round trip; the
+     * state change then commits in a short transaction, which also takes the file's reference. If
+     * that transaction fails, or another request completed the loan first, the upload stays
+     * unreferenced and is removed by {@link FileStorageService#purgeUnreferenced}.
+     */
     public PeminjamanResponse kembalikanBarang(Long id, PeminjamanKembaliRequest request,
-            org.springframework.web.multipart.MultipartFile file, String username) {
+            org.springframework.web.multipart.MultipartFile file, String username, String ifMatch) {
+        // Checks that do not need the upload run first, so a doomed request stores nothing
+        Peminjaman current = peminjamanRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Peminjaman tidak ditemukan"));
+        if (ifMatch != null) {
+            EntityTags.checkIfMatch(ifMatch, peminjamanRepository.findVersionTag(id).orElse(""));
+        }
+        if (current.getStatus().equals(Peminjaman.StatusPeminjaman.SELESAI)) {
+            return transactionTemplate.execute(tx -> PeminjamanResponse.fromEntity(
+                    peminjamanRepository.findById(id).orElseThrow()));
+        }
+
+        String fileUrl;
+        if (file != null && !file.isEmpty()) {
+            fileUrl = fileStorageService.storeFile(file);
+        } else {
+            // Uploaded directly to the bucket and verified on completion
+            fileUrl = request.getBeritaAcaraUrl() != null && !request.getBeritaAcaraUrl().isBlank()
+                    ? request.getBeritaAcaraUrl() : null;
+        }
+        return transactionTemplate.execute(tx -> completeReturn(id, request, fileUrl, username, ifMatch));
+    }
+
+    private PeminjamanResponse completeReturn(Long id, PeminjamanKembaliRequest request, String fileUrl,
+            String username, String ifMatch) {
         Peminjaman peminjaman = peminjamanRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Peminjaman tidak ditemukan"));
 
+        if (ifMatch != null) {
+            EntityTags.checkIfMatch(ifMatch, peminjamanRepository.findVersionTag(id).orElse(""));
+        }
+
         if (peminjaman.getStatus().equals(Peminjaman.StatusPeminjaman.SELESAI)) {
             return PeminjamanResponse.fromEntity(peminjaman);
         }
@@ -125,8 +217,9 @@ public class PeminjamanService {
         User penanggungJawab = userRepository.findByUsernameAndDeletedFalse(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User tidak ditemukan"));
 
-        if (file != null && !file.isEmpty()) {
-            String fileUrl = fileStorageService.storeFile(file);
+        if (fileUrl != null && !fileUrl.equals(peminjaman.getBeritaAcaraUrl())) {
+            fileStorageService.attach(fileUrl);
+            fileStorageService.detach(peminjaman.getBeritaAcaraUrl());
             peminjaman.setBeritaAcaraUrl(fileUrl);
         }
 
@@ -135,12 +228,27 @@ public class PeminjamanService {
         peminjaman.setStatus(Peminjaman.StatusPeminjaman.SELESAI);
         peminjaman.setKeterangan(peminjaman.getKeterangan() + " | Pengembalian: " + request.getKeterangan());
 
+        Map<Barang.StatusBarang, Long> previousStatuses = new EnumMap<>(Barang.StatusBarang.class);
+        List<AssetEvent.AssetEventBuilder> events = new ArrayList<>();
         for (PeminjamanDetail detail : peminjaman.getDetailBarang()) {
             Barang barang = detail.getBarang();
+            if (barang.getStatus() != null) {
+                previousStatuses.merge(barang.getStatus(), 1L, Long::sum);
+            }
             Barang.KondisiBarang kondisiKembali = request.getKondisiKembaliMap().getOrDefault(barang.getId(),
                     detail.getKondisiPinjam());
 
             detail.setKondisiKembali(kondisiKembali);
+            events.add(AssetEvent.builder()
+                    .barangId(barang.getId())
+                    .eventType(AssetEvent.EventType.DIKEMBALIKAN)
+                    .statusFrom(barang.getStatus())
+                    .statusTo(Barang.StatusBarang.TERSEDIA)
+                    .kondisiFrom(barang.getKondisi())
+                    .kondisiTo(kondisiKembali)
+                    .peminjamanId(peminjaman.getId())
+                    .noRegister(peminjaman.getNoRegister())
+                    .keterangan(request.getKeterangan()));
 
             barang.setStatus(Barang.StatusBarang.TERSEDIA);
             barang.setKondisi(kondisiKembali);
@@ -148,6 +256,23 @@ public class PeminjamanService {
         }
 
         Peminjaman saved = peminjamanRepository.save(peminjaman);
+        barangFacetService.evict(BarangFacetService.Dimension.STATUS, BarangFacetService.Dimension.KONDISI);
+        cacheEvictions.evictAfterCommit(CacheConfig.BARANG,
+                saved.getDetailBarang().stream().map(detail -> detail.getBarang().getId()).toList());
+        dashboardCounters.barangMoved(previousStatuses, Barang.StatusBarang.TERSEDIA);
+        dashboardCounters.peminjamanAktif(-1);
+        assetEventRecorder.record(events);
         return PeminjamanResponse.fromEntity(saved);
     }
+
+    /**
+     * Loads users, details and barang for a whole page with one query and returns a mapper that
+     * reads from it, so each list page costs a constant number of statements.
+     */
+    private Function<Peminjaman, PeminjamanResponse> withDetails(List<Peminjaman> page) {
+        Map<Long, Peminjaman> loaded = page.isEmpty() ? Map.of()
+                : peminjamanRepository.findAllWithDetailsByIdIn(page.stream().map(Peminjaman::getId).toList()).stream()
+                        .collect(Collectors.toMap(Peminjaman::getId, Function.identity()));
+        return peminjaman -> PeminjamanResponse.fromEntity(loaded.getOrDefault(peminjaman.getId(), peminjaman));
+    }
 }
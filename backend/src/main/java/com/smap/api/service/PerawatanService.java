@@ -1,11 +1,14 @@
 package com.smap.api.service;
 
+import com.smap.api.config.CacheConfig;
+import com.smap.api.domain.dto.CursorPagedResponse;
 import com.smap.api.domain.dto.PagedResponse;
 import com.smap.api.domain.dto.PerawatanDetailRequestDto;
 import com.smap.api.domain.dto.PerawatanDetailSelesaiDto;
 import com.smap.api.domain.dto.PerawatanRequest;
 import com.smap.api.domain.dto.PerawatanResponse;
 import com.smap.api.domain.dto.PerawatanSelesaiRequest;
+import com.smap.api.domain.entity.AssetEvent;
 import com.smap.api.domain.entity.Barang;
 import com.smap.api.domain.entity.Perawatan;
 import com.smap.api.domain.entity.PerawatanDetail;
@@ -15,26 +18,42 @@ import com.smap.api.repository.BarangRepository;
 import com.smap.api.repository.PerawatanRepository;
 import com.smap.api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PerawatanService {
 
+    private static final KeysetPagination KEYSET = new KeysetPagination(Map.of(
+            "id", Long::valueOf,
+            "createdAt", LocalDateTime::parse,
+            "tglService", LocalDate::parse,
+            "noRegister", Function.identity()));
+
     private final PerawatanRepository perawatanRepository;
     private final BarangRepository barangRepository;
+    private final BarangReservations barangReservations;
     private final UserRepository userRepository;
+    private final BarangFacetService barangFacetService;
+    private final CacheEvictions cacheEvictions;
+    private final DashboardCounters dashboardCounters;
+    private final AssetEventRecorder assetEventRecorder;
 
     @Transactional(readOnly = true)
     public PagedResponse<PerawatanResponse> getAllPerawatan(int page, int size, String sortDir, String sortBy) {
@@ -42,7 +61,22 @@ public class PerawatanService {
                 : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Perawatan> perawatanPage = perawatanRepository.findAll(pageable);
-        return PagedResponse.of(perawatanPage.map(PerawatanResponse::fromEntity));
+        return PagedResponse.of(perawatanPage.map(withDetails(perawatanPage.getContent())));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<PerawatanResponse> getAllPerawatanKeyset(String after, int size, String sortDir,
+            String sortBy, boolean withTotal) {
+        KeysetPagination.Query query = KEYSET.query(after, size, sortBy, sortDir);
+        Window<Perawatan> window = perawatanRepository.findAllBy(query.position(), query.sort(), query.limit());
+        Long total = withTotal ? perawatanRepository.count() : null;
+        return KEYSET.toResponse(query, window, withDetails(window.getContent()), total);
+    }
+
+    @Transactional(readOnly = true)
+    public String getPerawatanVersionTag(Long id) {
+        return perawatanRepository.findVersionTag(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Perawatan dengan ID " + id + " tidak ditemukan"));
     }
 
     @Transactional(readOnly = true)
@@ -55,7 +89,6 @@ public class PerawatanService {
         return PerawatanResponse.fromEntity(perawatan);
     }
 
-    @CacheEvict(value = "dashboardData", allEntries = true)
     @Transactional
     public PerawatanResponse ajukanPerawatan(PerawatanRequest request, String username) {
         User pengaju = userRepository.findByUsernameAndDeletedFalse(username)
@@ -72,39 +105,50 @@ public class PerawatanService {
                 .status(Perawatan.StatusPerawatan.PERAWATAN)
                 .build();
 
-        List<PerawatanDetail> details = new ArrayList<>();
-        for (PerawatanDetailRequestDto detailReq : request.getDetails()) {
-            Barang barang = barangRepository.findById(detailReq.getBarangId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Barang ID " + detailReq.getBarangId() + " tidak ditemukan"));
+        Map<Long, Barang> barangById = barangReservations.reserve(
+                request.getDetails().stream().map(PerawatanDetailRequestDto::getBarangId).toList(),
+                Barang.StatusBarang.DIRAWAT, "dirawat", username);
 
-            if (barang.isDeleted() || !barang.getStatus().equals(Barang.StatusBarang.TERSEDIA)) {
-                throw new IllegalStateException(
-                        "Barang " + barang.getNamaBarang() + " sedang tidak tersedia untuk dirawat");
-            }
-
-            barang.setStatus(Barang.StatusBarang.DIRAWAT);
-            barangRepository.save(barang);
-
-            PerawatanDetail detail = PerawatanDetail.builder()
+        List<PerawatanDetail> details = new ArrayList<>(request.getDetails().size());
+        for (PerawatanDetailRequestDto detailReq : request.getDetails()) {
+            details.add(PerawatanDetail.builder()
                     .perawatan(perawatan)
-                    .barang(barang)
+                    .barang(barangById.get(detailReq.getBarangId()))
                     .gejala(detailReq.getGejala())
-                    .build();
-            details.add(detail);
+                    .build());
         }
 
         perawatan.setDetailBarang(details);
         Perawatan saved = perawatanRepository.save(perawatan);
+        barangFacetService.evict(BarangFacetService.Dimension.STATUS);
+        cacheEvictions.evictAfterCommit(CacheConfig.BARANG, barangById.keySet());
+        dashboardCounters.barangMoved(Map.of(Barang.StatusBarang.TERSEDIA, (long) barangById.size()),
+                Barang.StatusBarang.DIRAWAT);
+        dashboardCounters.perawatanAktif(1);
+        assetEventRecorder.record(saved.getDetailBarang().stream()
+                .map(detail -> AssetEvent.builder()
+                        .barangId(detail.getBarang().getId())
+                        .eventType(AssetEvent.EventType.PERAWATAN_DIMULAI)
+                        .statusFrom(Barang.StatusBarang.TERSEDIA)
+                        .statusTo(Barang.StatusBarang.DIRAWAT)
+                        .kondisiTo(detail.getBarang().getKondisi())
+                        .perawatanId(saved.getId())
+                        .noRegister(saved.getNoRegister())
+                        .keterangan(detail.getGejala()))
+                .toList());
         return PerawatanResponse.fromEntity(saved);
     }
 
-    @CacheEvict(value = "dashboardData", allEntries = true)
     @Transactional
-    public PerawatanResponse selesaiPerawatan(Long id, PerawatanSelesaiRequest request, String username) {
+    public PerawatanResponse selesaiPerawatan(Long id, PerawatanSelesaiRequest request, String username,
+            String ifMatch) {
         Perawatan perawatan = perawatanRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Data perawatan tidak ditemukan"));
 
+        if (ifMatch != null) {
+            EntityTags.checkIfMatch(ifMatch, perawatanRepository.findVersionTag(id).orElse(""));
+        }
+
         if (perawatan.getStatus().equals(Perawatan.StatusPerawatan.SELESAI)) {
             return PerawatanResponse.fromEntity(perawatan);
         }
@@ -117,14 +161,29 @@ public class PerawatanService {
         perawatan.setStatus(Perawatan.StatusPerawatan.SELESAI);
         perawatan.setKeterangan(perawatan.getKeterangan() + " | Penyelesaian: " + request.getKeterangan());
 
+        Map<Barang.StatusBarang, Long> previousStatuses = new EnumMap<>(Barang.StatusBarang.class);
+        List<AssetEvent.AssetEventBuilder> events = new ArrayList<>();
         for (PerawatanDetail detail : perawatan.getDetailBarang()) {
             Barang barang = detail.getBarang();
             PerawatanDetailSelesaiDto selesaiInfo = request.getDetailSelesaiMap().get(barang.getId());
 
             if (selesaiInfo != null) {
+                if (barang.getStatus() != null) {
+                    previousStatuses.merge(barang.getStatus(), 1L, Long::sum);
+                }
                 detail.setPerbaikan(selesaiInfo.getPerbaikan());
                 detail.setGaransi(selesaiInfo.getGaransi());
                 detail.setKondisiKembali(selesaiInfo.getKondisiKembali());
+                events.add(AssetEvent.builder()
+                        .barangId(barang.getId())
+                        .eventType(AssetEvent.EventType.PERAWATAN_SELESAI)
+                        .statusFrom(barang.getStatus())
+                        .statusTo(Barang.StatusBarang.TERSEDIA)
+                        .kondisiFrom(barang.getKondisi())
+                        .kondisiTo(selesaiInfo.getKondisiKembali())
+                        .perawatanId(perawatan.getId())
+                        .noRegister(perawatan.getNoRegister())
+                        .keterangan(selesaiInfo.getPerbaikan()));
 
                 barang.setStatus(Barang.StatusBarang.TERSEDIA);
                 barang.setKondisi(selesaiInfo.getKondisiKembali());
@@ -133,6 +192,23 @@ public class PerawatanService {
         }
 
         Perawatan saved = perawatanRepository.save(perawatan);
+        barangFacetService.evict(BarangFacetService.Dimension.STATUS, BarangFacetService.Dimension.KONDISI);
+        cacheEvictions.evictAfterCommit(CacheConfig.BARANG,
+                saved.getDetailBarang().stream().map(detail -> detail.getBarang().getId()).toList());
+        dashboardCounters.barangMoved(previousStatuses, Barang.StatusBarang.TERSEDIA);
+        dashboardCounters.perawatanAktif(-1);
+        assetEventRecorder.record(events);
         return PerawatanResponse.fromEntity(saved);
     }
+
+    /**
+     * Loads users, details and barang for a whole page with one query and returns a mapper that
+     * reads from it, so each list page costs a constant number of statements.
+     */
+    private Function<Perawatan, PerawatanResponse> withDetails(List<Perawatan> page) {
+        Map<Long, Perawatan> loaded = page.isEmpty() ? Map.of()
+                : perawatanRepository.findAllWithDetailsByIdIn(page.stream().map(Perawatan::getId).toList()).stream()
+                        .collect(Collectors.toMap(Perawatan::getId, Function.identity()));
+        return perawatan -> PerawatanResponse.fromEntity(loaded.getOrDefault(perawatan.getId(), perawatan));
+    }
 }
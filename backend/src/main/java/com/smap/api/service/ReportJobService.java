@@ -0,0 +1,320 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.LaporanFilter;
+import com.smap.api.domain.dto.ReportJobRequest;
+import com.smap.api.domain.dto.ReportJobResponse;
+import com.smap.api.domain.entity.ReportJob;
+import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.repository.ReportJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs reports off the request thread. Jobs are persisted, executed by a small bounded pool,
+ * written to a temp file and handed to {@link ReportStorage}. A request for the same report and
+ * parameters against an unchanged data version returns the existing job instead of a new run.
+ * <p>
+ * Each node heartbeats the jobs it has queued or running. Queued jobs that lose their heartbeat
+ * (their node restarted or died) are picked up again by whichever node notices first; running
+ * ones are failed, since their partial output went with the node. Finished jobs and their files
+ * are removed together once they are older than {@code smap.reports.retention-days}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportJobService {
+
+    private static final String QUEUE_FULL = "Antrean laporan sedang penuh, silakan coba lagi nanti";
+    private static final String STALE = "Proses laporan terhenti sebelum selesai";
+    private static final Duration ORPHANED_AFTER = Duration.ofMinutes(5);
+    private static final List<ReportJob.StatusJob> ACTIVE = List.of(ReportJob.StatusJob.ANTRE,
+            ReportJob.StatusJob.DIPROSES);
+    private static final List<ReportJob.StatusJob> FINISHED = List.of(ReportJob.StatusJob.SELESAI,
+            ReportJob.StatusJob.GAGAL);
+    // Matches the derived findTop100 query
+    private static final int PURGE_BATCH = 100;
+
+    private final ReportJobRepository reportJobRepository;
+    private final LaporanService laporanService;
+    private final ReportStorage reportStorage;
+
+    @Value("${smap.reports.workers:2}")
+    private int workers;
+
+    @Value("${smap.reports.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${smap.reports.retention-days:7}")
+    private int retentionDays;
+
+    private ThreadPoolExecutor executor;
+    // Jobs queued or running on this node
+    private final Set<Long> tracked = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A finished report: either a local file to stream, or a link to redirect to.
+     */
+    public record ReportDownload(String fileName, String contentType, Path file, String redirectUrl) {
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public ReportJobResponse submit(ReportJobRequest request) {
+        ReportJob.ReportType type = request.getReportType();
+        LaporanFilter filter = request.filter();
+        filter.validate();
+        String params = filter.toParams();
+        String dataVersion = laporanService.dataVersion(type.getDataset());
+        String dedupKey = sha256(type.name() + "|" + params + "|" + dataVersion);
+
+        ReportJob existing = findReusable(dedupKey);
+        if (existing != null) {
+            return toResponse(existing);
+        }
+
+        ReportJob job;
+        try {
+            job = reportJobRepository.saveAndFlush(ReportJob.builder()
+                    .reportType(type)
+                    .params(params)
+                    .dataVersion(dataVersion)
+                    .dedupKey(dedupKey)
+                    .status(ReportJob.StatusJob.ANTRE)
+                    .build());
+        } catch (DataIntegrityViolationException ex) {
+            // An identical request was submitted concurrently and won the unique index
+            ReportJob winner = findReusable(dedupKey);
+            if (winner == null) {
+                throw ex;
+            }
+            return toResponse(winner);
+        }
+
+        ReportJob failed = enqueue(job.getId());
+        return toResponse(failed != null ? failed : job);
+    }
+
+    public ReportJobResponse getJob(Long id) {
+        ReportJob job = findJob(id);
+        return toResponse(job);
+    }
+
+    public ReportDownload download(Long id) {
+        ReportJob job = findJob(id);
+        if (job.getStatus() != ReportJob.StatusJob.SELESAI || job.getObjectKey() == null) {
+            throw new ResourceNotFoundException("Laporan untuk job " + id + " belum selesai");
+        }
+        String key = job.getObjectKey();
+        String contentType = job.getReportType().getFormat().getContentType();
+        return reportStorage.localFile(key)
+                .map(file -> new ReportDownload(key, contentType, file, null))
+                .orElseGet(() -> new ReportDownload(key, contentType, null, reportStorage.downloadUrl(id, key)));
+    }
+
+    private ReportJob findJob(Long id) {
+        return reportJobRepository.findById(id)
+                .filter(j -> !j.isDeleted())
+                .orElseThrow(() -> new ResourceNotFoundException("Job laporan dengan ID " + id + " tidak ditemukan"));
+    }
+
+    @Scheduled(fixedDelay = 30, timeUnit = TimeUnit.SECONDS)
+    public void heartbeat() {
+        if (!tracked.isEmpty()) {
+            reportJobRepository.touch(List.copyOf(tracked), ACTIVE, LocalDateTime.now());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        recoverOrphans();
+    }
+
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void recoverOrphans() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime before = now.minus(ORPHANED_AFTER);
+        int failed = reportJobRepository.failStale(List.of(ReportJob.StatusJob.DIPROSES), ReportJob.StatusJob.GAGAL,
+                before, STALE, now);
+        int requeued = 0;
+        for (Long jobId : reportJobRepository.findIdsIdleSince(ReportJob.StatusJob.ANTRE, before)) {
+            // Other nodes may requeue the same job; only one of them wins the claim in run()
+            if (!tracked.contains(jobId)) {
+                enqueue(jobId);
+                requeued++;
+            }
+        }
+        if (failed > 0 || requeued > 0) {
+            log.info("Recovered orphaned report jobs: {} failed, {} requeued", failed, requeued);
+        }
+    }
+
+    /**
+     * Deletes finished jobs past the retention period, file first: a job whose file could not be
+     * deleted keeps its row and is tried again on the next run.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeExpired() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int purged = 0;
+        List<ReportJob> expired;
+        do {
+            expired = reportJobRepository.findTop100ByStatusInAndFinishedAtBefore(FINISHED, before);
+            for (ReportJob job : expired) {
+                try {
+                    if (job.getObjectKey() != null) {
+                        reportStorage.delete(job.getObjectKey());
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to delete report file of job {}: {}", job.getId(), ex.getMessage());
+                    return;
+                }
+                reportJobRepository.delete(job);
+                purged++;
+            }
+        } while (expired.size() == PURGE_BATCH);
+        if (purged > 0) {
+            log.info("Purged {} expired report jobs", purged);
+        }
+    }
+
+    /**
+     * Hands a queued job to the worker pool; returns the failed job if the pool is full.
+     */
+    private ReportJob enqueue(Long jobId) {
+        tracked.add(jobId);
+        try {
+            executor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    tracked.remove(jobId);
+                }
+            });
+            return null;
+        } catch (RejectedExecutionException ex) {
+            tracked.remove(jobId);
+            return markFailed(jobId, QUEUE_FULL);
+        }
+    }
+
+    private void run(Long jobId) {
+        if (reportJobRepository.claim(jobId, ReportJob.StatusJob.ANTRE, ReportJob.StatusJob.DIPROSES,
+                LocalDateTime.now()) == 0) {
+            return;
+        }
+        ReportJob job = reportJobRepository.findById(jobId).orElseThrow();
+        LaporanFilter filter = LaporanFilter.fromParams(job.getParams());
+        job.setTotalRows(laporanService.countRows(job.getReportType().getDataset(), filter));
+        job = reportJobRepository.save(job);
+
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("report-" + jobId + "-",
+                    "." + job.getReportType().getFormat().getExtension());
+            long rows;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                rows = laporanService.export(job.getReportType(), filter, out,
+                        written -> reportJobRepository.updateProgress(jobId, written, LocalDateTime.now()));
+            }
+
+            String objectKey = objectKey(job);
+            reportStorage.store(objectKey, tempFile, job.getReportType().getFormat().getContentType());
+
+            job = reportJobRepository.findById(jobId).orElseThrow();
+            job.setStatus(ReportJob.StatusJob.SELESAI);
+            job.setRowsWritten(rows);
+            job.setObjectKey(objectKey);
+            job.setFinishedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+            log.info("Report job {} ({}) finished with {} rows", jobId, job.getReportType(), rows);
+        } catch (Exception ex) {
+            log.error("Report job {} failed: ", jobId, ex);
+            markFailed(jobId, "Gagal membuat laporan: " + ex.getMessage());
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete report temp file {}", tempFile);
+                }
+            }
+        }
+    }
+
+    private static String objectKey(ReportJob job) {
+        return "laporan-" + job.getId() + "-" + job.getReportType().name().toLowerCase() + "."
+                + job.getReportType().getFormat().getExtension();
+    }
+
+    private ReportJob findReusable(String dedupKey) {
+        return reportJobRepository.findFirstByDedupKeyAndStatusNotAndDeletedFalse(dedupKey,
+                ReportJob.StatusJob.GAGAL).orElse(null);
+    }
+
+    private ReportJob markFailed(Long jobId, String message) {
+        ReportJob job = reportJobRepository.findById(jobId).orElseThrow();
+        job.setStatus(ReportJob.StatusJob.GAGAL);
+        job.setErrorMessage(message);
+        job.setFinishedAt(LocalDateTime.now());
+        return reportJobRepository.save(job);
+    }
+
+    private ReportJobResponse toResponse(ReportJob job) {
+        String downloadUrl = job.getStatus() == ReportJob.StatusJob.SELESAI && job.getObjectKey() != null
+                ? reportStorage.downloadUrl(job.getId(), job.getObjectKey())
+                : null;
+        return ReportJobResponse.fromEntity(job, downloadUrl);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.smap.api.service;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where finished report files are kept. Object storage by default; set
+ * {@code smap.reports.storage=local} to keep them on local disk (tests, single-node setups).
+ */
+public interface ReportStorage {
+
+    void store(String key, Path file, String contentType);
+
+    /**
+     * Link handed out with a finished job. Storages without links of their own point at the
+     * authenticated {@code GET /laporan/jobs/{id}/download}.
+     */
+    String downloadUrl(Long jobId, String key);
+
+    /**
+     * The stored file when it is kept on local disk, for that download endpoint to serve.
+     */
+    Optional<Path> localFile(String key);
+
+    void delete(String key);
+}
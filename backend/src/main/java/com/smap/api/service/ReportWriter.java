@@ -0,0 +1,25 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.entity.ReportJob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Row sink shared by the report exports, so every dataset is read through the same cursor loop
+ * whatever the output format. Closing finishes the document but leaves the target stream open.
+ */
+interface ReportWriter extends Closeable {
+
+    void row(List<?> values) throws IOException;
+
+    static ReportWriter open(ReportJob.Format format, OutputStream out, String sheetName, List<String> header)
+            throws IOException {
+        return switch (format) {
+            case CSV -> new CsvReportWriter(out, header);
+            case XLSX -> new XlsxReportWriter(out, sheetName, header);
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.smap.api.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "smap.reports.storage", havingValue = "s3", matchIfMissing = true)
+public class S3ReportStorage implements ReportStorage {
+
+    private static final String PREFIX = "reports/";
+    private static final Duration LINK_TTL = Duration.ofHours(1);
+
+    private final FileStorageService fileStorageService;
+
+    @Override
+    public void store(String key, Path file, String contentType) {
+        fileStorageService.storeObject(PREFIX + key, file, contentType);
+    }
+
+    @Override
+    public String downloadUrl(Long jobId, String key) {
+        return fileStorageService.presignGetUrl(PREFIX + key, LINK_TTL);
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void delete(String key) {
+        fileStorageService.deleteObject(PREFIX + key);
+    }
+}
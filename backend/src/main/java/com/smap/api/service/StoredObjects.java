@@ -0,0 +1,100 @@
+package com.smap.api.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reference counts of content-addressed objects in the stored_object table. An upload only makes
+ * sure the object exists; ref_count counts the rows (barang photos, berita acara) that point at
+ * it and moves with them inside their transaction. Objects without references, whether never
+ * attached or released, are deleted by a sweep once they have been idle for a grace period.
+ */
+@Component
+@RequiredArgsConstructor
+class StoredObjects {
+
+    private static final String TOUCH_SQL = "UPDATE stored_object SET updated_at = CURRENT_TIMESTAMP "
+            + "WHERE object_key = ?";
+    private static final String REGISTER_SQL = "INSERT INTO stored_object "
+            + "(object_key, sha256, content_type, size_bytes, ref_count) VALUES (?, ?, ?, ?, 0) "
+            + "ON CONFLICT (object_key) DO UPDATE SET updated_at = CURRENT_TIMESTAMP";
+    private static final String ATTACH_SQL = "UPDATE stored_object SET ref_count = ref_count + 1, "
+            + "updated_at = CURRENT_TIMESTAMP WHERE object_key = ?";
+    private static final String DETACH_SQL = "UPDATE stored_object SET ref_count = ref_count - 1, "
+            + "updated_at = CURRENT_TIMESTAMP WHERE object_key = ? AND ref_count > 0";
+    private static final String UNREFERENCED_SQL = "SELECT object_key FROM stored_object "
+            + "WHERE ref_count = 0 AND updated_at < ? ORDER BY updated_at LIMIT ?";
+    private static final String EXISTING_SQL = "SELECT DISTINCT sha256 FROM stored_object WHERE sha256 = ANY(?)";
+    private static final String DELETE_SQL = "DELETE FROM stored_object "
+            + "WHERE object_key = ? AND ref_count = 0 AND updated_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Restarts the grace period of an object that is already stored; {@code false} means it has
+     * to be uploaded and then {@link #register registered}.
+     */
+    boolean touch(String objectKey) {
+        return jdbcTemplate.update(TOUCH_SQL, objectKey) > 0;
+    }
+
+    /**
+     * Records an uploaded object without references. Concurrent uploads of the same content both
+     * write the same bytes to the same key and end up as one row.
+     */
+    void register(String objectKey, String sha256, String contentType, long size) {
+        jdbcTemplate.update(REGISTER_SQL, objectKey, sha256, contentType, size);
+    }
+
+    /**
+     * Adds a reference in the caller's transaction; {@code false} when the object is not stored
+     * (never verified, or already swept).
+     */
+    boolean attach(String objectKey) {
+        return jdbcTemplate.update(ATTACH_SQL, objectKey) > 0;
+    }
+
+    void detach(String objectKey) {
+        jdbcTemplate.update(DETACH_SQL, objectKey);
+    }
+
+    List<String> findUnreferenced(Timestamp idleSince, int limit) {
+        return jdbcTemplate.queryForList(UNREFERENCED_SQL, String.class, idleSince, limit);
+    }
+
+    /**
+     * Returns which of the given content hashes still have an object.
+     */
+    Set<String> findExistingHashes(Collection<String> sha256s) {
+        return new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXISTING_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", sha256s.toArray(String[]::new)));
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1)));
+    }
+
+    /**
+     * Deletes the row if it is still unreferenced and runs {@code deleteObject}. The transaction
+     * stays open until the bucket delete has run, so an {@link #attach} or {@link #touch} racing
+     * it blocks on the row and then finds it gone instead of pointing at a deleted object.
+     */
+    boolean delete(String objectKey, Timestamp idleSince, Runnable deleteObject) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            if (jdbcTemplate.update(DELETE_SQL, objectKey, idleSince) == 0) {
+                return false;
+            }
+            deleteObject.run();
+            return true;
+        }));
+    }
+}
@@ -1,27 +1,44 @@
 package com.smap.api.service;
 
+import com.smap.api.config.CacheConfig;
+import com.smap.api.domain.dto.CursorPagedResponse;
 import com.smap.api.domain.dto.PagedResponse;
 import com.smap.api.domain.dto.UserRequest;
 import com.smap.api.domain.dto.UserResponse;
 import com.smap.api.domain.entity.User;
 import com.smap.api.domain.entity.UserPermission;
+import com.smap.api.exception.BadRequestException;
 import com.smap.api.exception.ResourceNotFoundException;
 import com.smap.api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final KeysetPagination KEYSET = new KeysetPagination(Map.of(
+            "id", Long::valueOf,
+            "createdAt", LocalDateTime::parse,
+            "username", Function.identity(),
+            "name", Function.identity()));
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CacheEvictions cacheEvictions;
 
     @Transactional(readOnly = true)
     public PagedResponse<UserResponse> getAllUsers(int page, int size, String sortDir, String sortBy) {
@@ -32,6 +49,16 @@ public class UserService {
         return PagedResponse.of(userPage.map(UserResponse::fromEntity));
     }
 
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<UserResponse> getAllUsersKeyset(String after, int size, String sortDir, String sortBy,
+            boolean withTotal) {
+        KeysetPagination.Query query = KEYSET.query(after, size, sortBy, sortDir);
+        Window<User> window = userRepository.findAllBy(query.position(), query.sort(), query.limit());
+        Long total = withTotal ? userRepository.count() : null;
+        return KEYSET.toResponse(query, window, UserResponse::fromEntity, total);
+    }
+
+    @Cacheable(value = CacheConfig.USERS, key = "#id")
     @Transactional(readOnly = true)
     public UserResponse getUserById(Long id) {
         User user = userRepository.findById(id)
@@ -42,10 +69,10 @@ public class UserService {
     @Transactional
     public UserResponse createUser(UserRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
-            throw new IllegalArgumentException("Username sudah terdaftar!");
+            throw new BadRequestException("Username sudah terdaftar!");
         }
         if (userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email sudah terdaftar!");
+            throw new BadRequestException("Email sudah terdaftar!");
         }
 
         User user = new User();
@@ -83,13 +110,14 @@ public class UserService {
     public UserResponse updateUser(Long id, UserRequest request) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User tidak ditemukan"));
+        String oldUsername = user.getUsername();
 
         if (!user.getUsername().equals(request.getUsername())
                 && userRepository.existsByUsername(request.getUsername())) {
-            throw new IllegalArgumentException("Username sudah terdaftar!");
+            throw new BadRequestException("Username sudah terdaftar!");
         }
         if (!user.getEmail().equals(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email sudah terdaftar!");
+            throw new BadRequestException("Email sudah terdaftar!");
         }
 
         user.setUsername(request.getUsername());
@@ -118,6 +146,8 @@ public class UserService {
         }
 
         User updated = userRepository.save(user);
+        cacheEvictions.evictAfterCommit(CacheConfig.USERS, id);
+        cacheEvictions.evictAfterCommit(CacheConfig.USER_ACCOUNTS, List.of(oldUsername, updated.getUsername()));
         return UserResponse.fromEntity(updated);
     }
 
@@ -127,7 +157,7 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User tidak ditemukan"));
 
         if (!user.getEmail().equals(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
-            throw new IllegalArgumentException("Email sudah terdaftar!");
+            throw new BadRequestException("Email sudah terdaftar!");
         }
 
         user.setEmail(request.getEmail());
@@ -141,6 +171,8 @@ public class UserService {
         }
 
         User updated = userRepository.save(user);
+        cacheEvictions.evictAfterCommit(CacheConfig.USERS, updated.getId());
+        cacheEvictions.evictAfterCommit(CacheConfig.USER_ACCOUNTS, updated.getUsername());
         return UserResponse.fromEntity(updated);
     }
 
@@ -150,5 +182,7 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User tidak ditemukan"));
         user.setDeleted(true);
         userRepository.save(user);
+        cacheEvictions.evictAfterCommit(CacheConfig.USERS, id);
+        cacheEvictions.evictAfterCommit(CacheConfig.USER_ACCOUNTS, user.getUsername());
     }
 }
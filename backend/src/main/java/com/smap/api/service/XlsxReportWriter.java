@@ -0,0 +1,99 @@
+package com.smap.api.service;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes XLSX through POI's streaming workbook: only the last {@value #WINDOW_SIZE} rows stay in
+ * memory, older rows are flushed to a compressed temp file and copied into the zip on close.
+ * A sheet that reaches the Excel row limit continues on a new sheet with the same header.
+ */
+class XlsxReportWriter implements ReportWriter {
+
+    private static final int WINDOW_SIZE = 100;
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook;
+    private final String sheetName;
+    private final List<String> header;
+    private final CellStyle headerStyle;
+    private final CellStyle dateStyle;
+
+    private Sheet sheet;
+    private int sheetCount;
+    private int rowIndex;
+
+    XlsxReportWriter(OutputStream out, String sheetName, List<String> header) {
+        this.out = out;
+        this.sheetName = sheetName;
+        this.header = header;
+        this.workbook = new SXSSFWorkbook(WINDOW_SIZE);
+        this.workbook.setCompressTempFiles(true);
+
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        this.headerStyle = workbook.createCellStyle();
+        this.headerStyle.setFont(bold);
+        this.dateStyle = workbook.createCellStyle();
+        this.dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+        newSheet();
+    }
+
+    @Override
+    public void row(List<?> values) {
+        if (rowIndex >= MAX_ROWS) {
+            newSheet();
+        }
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+            } else if (value instanceof LocalDate date) {
+                cell.setCellValue(date);
+                cell.setCellStyle(dateStyle);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // Also deletes the temporary sheet files SXSSF streamed rows into
+            workbook.close();
+        }
+    }
+
+    private void newSheet() {
+        sheetCount++;
+        sheet = workbook.createSheet(sheetCount == 1 ? sheetName : sheetName + " " + sheetCount);
+        Row row = sheet.createRow(0);
+        for (int i = 0; i < header.size(); i++) {
+            Cell cell = row.createCell(i);
+            cell.setCellValue(header.get(i));
+            cell.setCellStyle(headerStyle);
+        }
+        rowIndex = 1;
+    }
+}
@@ -0,0 +1,7 @@
+-- V10__Add_barcode_indexes.sql
+-- Non-unique lookup indexes for barcode scanning (uniqueness was dropped in V5).
+
+CREATE INDEX IF NOT EXISTS idx_barang_barcode_produk ON barang (barcode_produk)
+    WHERE is_deleted = FALSE AND barcode_produk IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_barang_barcode_sn ON barang (barcode_sn)
+    WHERE is_deleted = FALSE AND barcode_sn IS NOT NULL;
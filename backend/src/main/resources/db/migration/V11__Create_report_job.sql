@@ -0,0 +1,35 @@
+-- V11__Create_report_job.sql
+-- Background report jobs (POST /laporan/jobs). dedup_key hashes the report type, its parameters and
+-- the data version, so an identical request against unchanged data reuses the queued or finished job.
+
+CREATE TABLE report_job (
+    id BIGSERIAL PRIMARY KEY,
+    report_type VARCHAR(50) NOT NULL,
+    params TEXT,
+    data_version VARCHAR(255) NOT NULL,
+    dedup_key VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL, -- ANTRE, DIPROSES, SELESAI, GAGAL
+    rows_written BIGINT DEFAULT 0 NOT NULL,
+    total_rows BIGINT,
+    object_key VARCHAR(500),
+    error_message TEXT,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+
+    -- Audit & Optimistic Locking
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    created_by VARCHAR(255),
+    updated_at TIMESTAMP,
+    updated_by VARCHAR(255),
+    version BIGINT DEFAULT 0,
+    is_deleted BOOLEAN DEFAULT FALSE NOT NULL
+);
+
+-- Failed jobs release their key so the same request can be retried
+CREATE UNIQUE INDEX IF NOT EXISTS uq_report_job_dedup_key ON report_job (dedup_key)
+    WHERE status <> 'GAGAL' AND is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_report_job_status_updated ON report_job (status, updated_at)
+    WHERE status IN ('ANTRE', 'DIPROSES');
+
+-- Data version of the barang catalogue is MAX(id) + MAX(updated_at); both are index lookups
+CREATE INDEX IF NOT EXISTS idx_barang_updated_at ON barang (updated_at);
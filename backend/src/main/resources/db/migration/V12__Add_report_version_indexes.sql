@@ -0,0 +1,9 @@
+-- V12__Add_report_version_indexes.sql
+-- updated_at lookups used to compute the data version of the peminjaman / perawatan reports for job
+-- de-duplication. The date-range filters reuse the keyset indexes from V7 and V9.
+
+CREATE INDEX IF NOT EXISTS idx_peminjaman_updated_at ON transaksi_peminjaman (updated_at);
+CREATE INDEX IF NOT EXISTS idx_perawatan_updated_at ON transaksi_perawatan (updated_at);
+CREATE INDEX IF NOT EXISTS idx_peminjaman_detail_updated_at ON transaksi_peminjaman_detail (updated_at);
+CREATE INDEX IF NOT EXISTS idx_perawatan_detail_updated_at ON transaksi_perawatan_detail (updated_at);
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at);
@@ -0,0 +1,6 @@
+-- V13__Pool_detail_id_sequences.sql
+-- Detail ids are now allocated by Hibernate's pooled optimizer (allocationSize = 50), so the detail
+-- rows of one transaction are inserted as a single JDBC batch. The sequence increment has to match.
+
+ALTER SEQUENCE transaksi_peminjaman_detail_id_seq INCREMENT BY 50;
+ALTER SEQUENCE transaksi_perawatan_detail_id_seq INCREMENT BY 50;
@@ -0,0 +1,70 @@
+-- V14__Create_asset_event.sql
+-- Append-only log of barang state changes behind GET /barang/{id}/timeline. Rows are only ever
+-- inserted; the trigger rejects UPDATE and DELETE. Existing transactions are backfilled below.
+
+CREATE TABLE asset_event (
+    id BIGSERIAL PRIMARY KEY,
+    barang_id BIGINT NOT NULL REFERENCES barang(id),
+    event_type VARCHAR(30) NOT NULL, -- DIBUAT, DIUBAH, KONDISI_BERUBAH, DIPINJAM, DIKEMBALIKAN, PERAWATAN_DIMULAI, PERAWATAN_SELESAI, DIHAPUS
+    occurred_at TIMESTAMP NOT NULL,
+    actor VARCHAR(255),
+    status_from VARCHAR(50),
+    status_to VARCHAR(50),
+    kondisi_from VARCHAR(50),
+    kondisi_to VARCHAR(50),
+    peminjaman_id BIGINT REFERENCES transaksi_peminjaman(id),
+    perawatan_id BIGINT REFERENCES transaksi_perawatan(id),
+    no_register VARCHAR(255),
+    keterangan TEXT
+);
+
+CREATE INDEX idx_asset_event_barang_occurred ON asset_event (barang_id, occurred_at DESC, id DESC);
+
+CREATE OR REPLACE FUNCTION asset_event_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'asset_event is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_asset_event_append_only
+    BEFORE UPDATE OR DELETE ON asset_event
+    FOR EACH ROW EXECUTE FUNCTION asset_event_append_only();
+
+-- Backfill
+INSERT INTO asset_event (barang_id, event_type, occurred_at, actor, kondisi_to, keterangan)
+SELECT b.id, 'DIBUAT', b.created_at, b.created_by, b.kondisi, 'Data awal'
+FROM barang b;
+
+INSERT INTO asset_event (barang_id, event_type, occurred_at, actor, status_from, status_to, kondisi_to,
+                         peminjaman_id, no_register)
+SELECT d.barang_id, 'DIPINJAM', p.created_at, u.username, 'TERSEDIA', 'DIPINJAM', d.kondisi_pinjam, p.id, p.no_register
+FROM transaksi_peminjaman_detail d
+JOIN transaksi_peminjaman p ON p.id = d.peminjaman_id
+JOIN users u ON u.id = p.peminjam_id
+WHERE p.is_deleted = FALSE AND d.is_deleted = FALSE;
+
+INSERT INTO asset_event (barang_id, event_type, occurred_at, actor, status_from, status_to, kondisi_from, kondisi_to,
+                         peminjaman_id, no_register)
+SELECT d.barang_id, 'DIKEMBALIKAN', COALESCE(p.updated_at, p.tgl_kembali_aktual::timestamp, p.created_at), u.username,
+       'DIPINJAM', 'TERSEDIA', d.kondisi_pinjam, COALESCE(d.kondisi_kembali, d.kondisi_pinjam), p.id, p.no_register
+FROM transaksi_peminjaman_detail d
+JOIN transaksi_peminjaman p ON p.id = d.peminjaman_id
+LEFT JOIN users u ON u.id = p.penanggung_jawab_id
+WHERE p.status = 'SELESAI' AND p.is_deleted = FALSE AND d.is_deleted = FALSE;
+
+INSERT INTO asset_event (barang_id, event_type, occurred_at, actor, status_from, status_to, perawatan_id, no_register,
+                         keterangan)
+SELECT d.barang_id, 'PERAWATAN_DIMULAI', p.created_at, u.username, 'TERSEDIA', 'DIRAWAT', p.id, p.no_register, d.gejala
+FROM transaksi_perawatan_detail d
+JOIN transaksi_perawatan p ON p.id = d.perawatan_id
+JOIN users u ON u.id = p.diajukan_oleh_id
+WHERE p.is_deleted = FALSE AND d.is_deleted = FALSE;
+
+INSERT INTO asset_event (barang_id, event_type, occurred_at, actor, status_from, status_to, kondisi_to, perawatan_id,
+                         no_register, keterangan)
+SELECT d.barang_id, 'PERAWATAN_SELESAI', COALESCE(p.updated_at, p.tgl_selesai_aktual::timestamp, p.created_at),
+       u.username, 'DIRAWAT', 'TERSEDIA', d.kondisi_kembali, p.id, p.no_register, d.perbaikan
+FROM transaksi_perawatan_detail d
+JOIN transaksi_perawatan p ON p.id = d.perawatan_id
+LEFT JOIN users u ON u.id = p.penanggung_jawab_id
+WHERE p.status = 'SELESAI' AND p.is_deleted = FALSE AND d.is_deleted = FALSE;
@@ -0,0 +1,18 @@
+-- V15__Create_idempotency_key.sql
+-- Idempotency-Key records for transaction-creating endpoints. A row is inserted in the same
+-- database transaction as the operation it guards, so it exists exactly when the operation
+-- committed; Redis holds a copy for the fast path. Rows are purged after expires_at.
+
+CREATE TABLE idempotency_key (
+    id BIGSERIAL PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    endpoint VARCHAR(100) NOT NULL,
+    idem_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE UNIQUE INDEX uq_idempotency_key ON idempotency_key (username, endpoint, idem_key);
+CREATE INDEX idx_idempotency_key_expires_at ON idempotency_key (expires_at);
@@ -0,0 +1,9 @@
+-- V16__Add_barang_photo_renditions.sql
+-- Thumbnail and medium renditions of barang.photo_url, filled in asynchronously after the photo is
+-- set. NULL means not processed yet; the partial index serves the sweep that picks those rows up.
+
+ALTER TABLE barang ADD COLUMN IF NOT EXISTS photo_thumb_url VARCHAR(500);
+ALTER TABLE barang ADD COLUMN IF NOT EXISTS photo_medium_url VARCHAR(500);
+
+CREATE INDEX IF NOT EXISTS idx_barang_photo_pending ON barang (id)
+    WHERE photo_url IS NOT NULL AND photo_thumb_url IS NULL AND is_deleted = FALSE;
@@ -0,0 +1,14 @@
+-- V17__Create_stored_object.sql
+-- Uploaded files are stored once per content: the object key is the SHA-256 of the bytes plus the
+-- extension, and ref_count counts the uploads that resolved to it. The object is deleted from the
+-- bucket when the last reference is released.
+
+CREATE TABLE stored_object (
+    object_key VARCHAR(100) PRIMARY KEY,
+    sha256 VARCHAR(64) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL CHECK (ref_count >= 0),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
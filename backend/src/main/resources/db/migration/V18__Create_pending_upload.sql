@@ -0,0 +1,17 @@
+-- V18__Create_pending_upload.sql
+-- Presigned direct-to-bucket uploads that were issued but not yet completed. The browser PUTs to
+-- a staging key; completion verifies the object against the declared size, type and SHA-256 and
+-- moves it to its content-addressed key. Expired rows and their staging objects are purged.
+
+CREATE TABLE pending_upload (
+    id UUID PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    staging_key VARCHAR(100) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_pending_upload_expires_at ON pending_upload (expires_at);
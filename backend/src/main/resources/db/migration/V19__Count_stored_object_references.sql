@@ -0,0 +1,14 @@
+-- V19__Count_stored_object_references.sql
+-- ref_count now counts the rows that reference an object (barang photos, berita acara) instead of
+-- the uploads that resolved to it. Recount from those rows; objects left at zero are deleted by
+-- the unreferenced-object sweep after its grace period, which the partial index serves.
+
+UPDATE stored_object s SET ref_count =
+        (SELECT COUNT(*) FROM barang b
+         WHERE b.is_deleted = FALSE AND b.photo_url LIKE '%/' || s.object_key)
+        + (SELECT COUNT(*) FROM transaksi_peminjaman p
+           WHERE p.berita_acara_url LIKE '%/' || s.object_key),
+    updated_at = CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_stored_object_unreferenced ON stored_object (updated_at)
+    WHERE ref_count = 0;
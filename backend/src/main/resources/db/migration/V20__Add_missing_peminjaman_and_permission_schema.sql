@@ -0,0 +1,17 @@
+-- V20__Add_missing_peminjaman_and_permission_schema.sql
+-- The penanggung jawab columns on transaksi_peminjaman and the user_permissions table were only
+-- ever created by Hibernate on existing installs; no migration had them, so a fresh database
+-- failed schema validation. IF NOT EXISTS keeps this a no-op where they already exist.
+
+ALTER TABLE transaksi_peminjaman ADD COLUMN IF NOT EXISTS penanggung_jawab_input_name VARCHAR(255);
+ALTER TABLE transaksi_peminjaman ADD COLUMN IF NOT EXISTS penanggung_jawab_input_nip VARCHAR(255);
+ALTER TABLE transaksi_peminjaman ADD COLUMN IF NOT EXISTS penanggung_jawab_input_jabatan VARCHAR(255);
+
+CREATE TABLE IF NOT EXISTS user_permissions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id),
+    menu VARCHAR(255) NOT NULL,
+    sub_menu VARCHAR(255) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_permissions_user_id ON user_permissions (user_id);
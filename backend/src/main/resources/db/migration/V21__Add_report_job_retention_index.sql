@@ -0,0 +1,6 @@
+-- V21__Add_report_job_retention_index.sql
+-- Finished report jobs are deleted with their files once they pass the retention period; this
+-- index serves that hourly sweep.
+
+CREATE INDEX IF NOT EXISTS idx_report_job_finished_at ON report_job (finished_at)
+    WHERE status IN ('SELESAI', 'GAGAL');
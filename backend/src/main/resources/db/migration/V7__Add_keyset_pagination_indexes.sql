@@ -0,0 +1,18 @@
+-- V7__Add_keyset_pagination_indexes.sql
+-- Composite (sort key, id) indexes backing the cursor (keyset) pagination mode of the list endpoints.
+-- Btree indexes are scanned backwards for DESC, so one index per sort key is enough.
+
+CREATE INDEX IF NOT EXISTS idx_barang_created_at_id ON barang (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_barang_nama_barang_id ON barang (nama_barang, id);
+CREATE INDEX IF NOT EXISTS idx_barang_kode_barang_id ON barang (kode_barang, id);
+
+CREATE INDEX IF NOT EXISTS idx_peminjaman_created_at_id ON transaksi_peminjaman (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_peminjaman_tgl_pinjam_id ON transaksi_peminjaman (tgl_pinjam, id);
+CREATE INDEX IF NOT EXISTS idx_peminjaman_peminjam_id_id ON transaksi_peminjaman (peminjam_id, id) WHERE is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_peminjaman_peminjam_created_at_id ON transaksi_peminjaman (peminjam_id, created_at, id) WHERE is_deleted = FALSE;
+
+CREATE INDEX IF NOT EXISTS idx_perawatan_created_at_id ON transaksi_perawatan (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_perawatan_tgl_service_id ON transaksi_perawatan (tgl_service, id);
+
+CREATE INDEX IF NOT EXISTS idx_users_created_at_id ON users (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_users_name_id ON users (name, id);
@@ -0,0 +1,27 @@
+-- V8__Add_barang_search_index.sql
+-- Full-text + trigram search over the barang catalogue (GET /barang/search).
+-- search_vector drives ranked full-text matching, search_text drives typo-tolerant trigram matching.
+-- Both are generated columns so they are maintained by Postgres on every insert/update.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE barang
+ADD COLUMN search_text TEXT GENERATED ALWAYS AS (
+    lower(
+        coalesce(nama_barang, '') || ' ' ||
+        coalesce(merk_type, '') || ' ' ||
+        coalesce(kode_barang, '') || ' ' ||
+        coalesce(nup, '') || ' ' ||
+        coalesce(lokasi, '') || ' ' ||
+        coalesce(pemakai, '')
+    )
+) STORED,
+ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(nama_barang, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(kode_barang, '') || ' ' || coalesce(nup, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(merk_type, '')), 'B') ||
+    setweight(to_tsvector('simple', coalesce(lokasi, '') || ' ' || coalesce(pemakai, '')), 'C')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_barang_search_vector ON barang USING GIN (search_vector) WHERE is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_barang_search_text_trgm ON barang USING GIN (search_text gin_trgm_ops) WHERE is_deleted = FALSE;
@@ -0,0 +1,10 @@
+-- V9__Add_barang_filter_indexes.sql
+-- Indexes for the faceted filters on the barang catalogue (status, kondisi, jenis_barang, gudang, lokasi, tgl_perolehan).
+-- Soft-deleted rows are never part of a filtered listing or a facet count.
+
+CREATE INDEX IF NOT EXISTS idx_barang_status ON barang (status) WHERE is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_barang_kondisi ON barang (kondisi) WHERE is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_barang_jenis_barang ON barang (jenis_barang) WHERE is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_barang_gudang ON barang (gudang) WHERE is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_barang_lokasi ON barang (lokasi) WHERE is_deleted = FALSE;
+CREATE INDEX IF NOT EXISTS idx_barang_tgl_perolehan ON barang (tgl_perolehan) WHERE is_deleted = FALSE;
@@ -0,0 +1,121 @@
+package com.smap.api.controller;
+
+import com.smap.api.service.DirectUploadService;
+import com.smap.api.service.FileStorageService;
+import com.smap.api.service.ObjectCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cached objects are served with an immutable validator, answer conditional requests with 304 and
+ * byte ranges with 206, and large full reads go to the container's sendfile.
+ */
+@ExtendWith(MockitoExtension.class)
+class FileControllerTest {
+
+    private static final String HASH = "c".repeat(64);
+    private static final String KEY = HASH + ".pdf";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ObjectCache objectCache;
+
+    @Mock
+    private DirectUploadService directUploadService;
+
+    @TempDir
+    Path dir;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new FileController(fileStorageService, objectCache, directUploadService))
+                .build();
+    }
+
+    @Test
+    void objectIsServedAsImmutable() throws Exception {
+        cache("berita acara".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/files/objects/" + KEY))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().string("berita acara"));
+    }
+
+    @Test
+    void matchingEntityTagIsNotModified() throws Exception {
+        cache("berita acara".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/files/objects/" + KEY).header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void rangeIsServedAsPartialContent() throws Exception {
+        cache("berita acara".getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/files/objects/" + KEY).header(HttpHeaders.RANGE, "bytes=7-11"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-11/12"))
+                .andExpect(content().string("acara"));
+    }
+
+    @Test
+    void largeFullReadIsHandedToSendfile() throws Exception {
+        Path file = cache(new byte[64 * 1024]);
+
+        mockMvc.perform(get("/files/objects/" + KEY).requestAttr(SENDFILE_SUPPORT, true))
+                .andExpect(status().isOk())
+                .andExpect(request().attribute(SENDFILE_FILENAME, file.toString()))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 64 * 1024))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void largeRangeIsNotHandedToSendfile() throws Exception {
+        cache(new byte[64 * 1024]);
+
+        mockMvc.perform(get("/files/objects/" + KEY).requestAttr(SENDFILE_SUPPORT, true)
+                        .header(HttpHeaders.RANGE, "bytes=0-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(request().attribute(SENDFILE_FILENAME, (Object) null))
+                .andExpect(content().bytes(new byte[10]));
+    }
+
+    private Path cache(byte[] bytes) throws IOException {
+        Path file = Files.write(dir.resolve(KEY), bytes);
+        when(objectCache.get(KEY)).thenReturn(new ObjectCache.CachedObject(file, bytes.length,
+                Files.getLastModifiedTime(file).toMillis()));
+        return file;
+    }
+}
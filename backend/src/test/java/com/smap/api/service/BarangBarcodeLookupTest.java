@@ -0,0 +1,67 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.BarangResponse;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.repository.BarangRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A scan returns every barang carrying the code, however its barcode was padded when stored.
+ */
+@SpringBootTest
+class BarangBarcodeLookupTest {
+
+    @Autowired
+    private BarangService barangService;
+
+    @Autowired
+    private BarangRepository barangRepository;
+
+    @Autowired
+    private BarangBarcodeIndex barangBarcodeIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String code = "SCAN-" + UUID.randomUUID().toString().substring(0, 8);
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM barang WHERE kode_barang LIKE ?", code + "%");
+    }
+
+    @Test
+    void findsPaddedAndDuplicateBarcodes() {
+        // Saved and indexed outside a transaction, as after a commit
+        Barang padded = barang("  " + code + " ", null);
+        Barang duplicate = barang(null, code);
+        barangBarcodeIndex.register(padded);
+        barangBarcodeIndex.register(duplicate);
+
+        Map<String, List<BarangResponse>> result = barangService.findByBarcodes(List.of(" " + code));
+
+        assertEquals(List.of(padded.getId(), duplicate.getId()),
+                result.get(code).stream().map(BarangResponse::getId).sorted().toList());
+    }
+
+    private Barang barang(String produk, String sn) {
+        return barangRepository.save(Barang.builder()
+                .kodeBarang(code + "-" + UUID.randomUUID().toString().substring(0, 8))
+                .namaBarang("Barang scan")
+                .barcodeProduk(produk)
+                .barcodeSn(sn)
+                .kondisi(Barang.KondisiBarang.BAIK)
+                .status(Barang.StatusBarang.TERSEDIA)
+                .build());
+    }
+}
@@ -0,0 +1,65 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.BarangImportResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rows the database rejects are reported one by one; the rest of their batch is still imported.
+ */
+@SpringBootTest
+@Transactional
+class BarangImportServiceTest {
+
+    @Autowired
+    private BarangImportService barangImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reportsRejectedRowsAndImportsTheRest() {
+        String prefix = "IMP-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        String csv = String.join("\n",
+                "kodeBarang,namaBarang,merkType,kondisi,status,photoUrl",
+                prefix + "1,Laptop,Lenovo,BAIK,TERSEDIA,",
+                prefix + "2,Printer," + "x".repeat(300) + ",BAIK,TERSEDIA,",
+                prefix + "3,,Epson,BAIK,TERSEDIA,",
+                prefix + "4,Kamera,Canon,BAIK,TERSEDIA,http://localhost:9000/smap-assets/" + "0".repeat(64) + ".jpg",
+                prefix + "5,Proyektor,Epson,RUSAK_RINGAN,DIPINJAM,");
+
+        BarangImportResponse response = barangImportService.importCsv(
+                new MockMultipartFile("file", "barang.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)),
+                "importer");
+
+        assertEquals(5, response.getTotalRows());
+        assertEquals(2, response.getImported());
+        assertEquals(3, response.getFailed());
+        assertEquals(List.of(3L, 4L, 5L), response.getErrors().stream()
+                .map(BarangImportResponse.RowError::getRow).toList());
+        assertEquals(List.of(prefix + "1", prefix + "5"), jdbcTemplate.queryForList(
+                "SELECT kode_barang FROM barang WHERE kode_barang LIKE ? ORDER BY kode_barang", String.class,
+                prefix + "%"));
+        String tooLong = message(response, 3);
+        assertTrue(tooLong.startsWith("Baris tidak dapat disimpan"), tooLong);
+        assertTrue(message(response, 5).startsWith("photoUrl: "), message(response, 5));
+        assertEquals("importer", jdbcTemplate.queryForObject(
+                "SELECT created_by FROM barang WHERE kode_barang = ?", String.class, prefix + "1"));
+    }
+
+    private static String message(BarangImportResponse response, long row) {
+        return response.getErrors().stream().filter(error -> error.getRow() == row).findFirst().orElseThrow()
+                .getMessage();
+    }
+}
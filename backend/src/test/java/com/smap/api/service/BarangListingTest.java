@@ -0,0 +1,58 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.BarangFilter;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.repository.BarangRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Soft-deleted barang are left out of the catalogue the same way with and without a filter, and
+ * with offset or keyset paging.
+ */
+@SpringBootTest
+@Transactional
+class BarangListingTest {
+
+    @Autowired
+    private BarangService barangService;
+
+    @Autowired
+    private BarangRepository barangRepository;
+
+    @Test
+    void deletedBarangAreExcludedOnEveryPath() {
+        String jenis = "JENIS-" + UUID.randomUUID();
+        barang(jenis, false);
+        barang(jenis, true);
+        long active = barangRepository.countByDeletedFalse();
+
+        BarangFilter none = new BarangFilter();
+        BarangFilter byJenis = new BarangFilter();
+        byJenis.setJenisBarang(jenis);
+
+        assertEquals(active, barangService.getAllBarang(0, 10, "asc", "id", none).getTotalElements());
+        assertEquals(active, barangService.getAllBarangListItems(0, 10, "asc", "id", none).getTotalElements());
+        assertEquals(1, barangService.getAllBarang(0, 10, "asc", "id", byJenis).getTotalElements());
+        assertEquals(1, barangService.getAllBarangListItems(0, 10, "asc", "id", byJenis).getTotalElements());
+        assertEquals(active, barangService.getAllBarangKeyset(null, 10, "asc", "id", true).getTotalElements());
+    }
+
+    private void barang(String jenis, boolean deleted) {
+        Barang barang = Barang.builder()
+                .kodeBarang("LST-" + UUID.randomUUID().toString().substring(0, 8))
+                .namaBarang("Barang " + jenis)
+                .jenisBarang(jenis)
+                .kondisi(Barang.KondisiBarang.BAIK)
+                .status(Barang.StatusBarang.TERSEDIA)
+                .build();
+        barang.setDeleted(deleted);
+        barangRepository.save(barang);
+    }
+}
@@ -0,0 +1,182 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.BarangConflictResponse;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.exception.BadRequestException;
+import com.smap.api.exception.ConflictException;
+import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.repository.BarangRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Reserving barang is all or nothing, and a request that loses a race is told exactly which barang
+ * were taken, including when it only finds out after waiting for the winner's row locks.
+ */
+@SpringBootTest
+class BarangReservationsTest {
+
+    @Autowired
+    private BarangReservations barangReservations;
+
+    @Autowired
+    private BarangRepository barangRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String prefix;
+    private Barang tersedia;
+    private Barang dipinjam;
+    private Barang dirawat;
+
+    @BeforeEach
+    void seed() {
+        prefix = "RSV-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        tersedia = barang("A", Barang.StatusBarang.TERSEDIA);
+        dipinjam = barang("B", Barang.StatusBarang.DIPINJAM);
+        dirawat = barang("C", Barang.StatusBarang.DIRAWAT);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM barang WHERE kode_barang LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void reservesAvailableBarang() {
+        Barang other = barang("D", Barang.StatusBarang.TERSEDIA);
+
+        Map<Long, Barang> reserved = transactionTemplate.execute(tx -> barangReservations.reserve(
+                List.of(other.getId(), tersedia.getId()), Barang.StatusBarang.DIPINJAM, "peminjaman", "admin"));
+
+        assertEquals(List.of(tersedia.getId(), other.getId()), List.copyOf(reserved.keySet()));
+        reserved.values().forEach(barang -> assertEquals(Barang.StatusBarang.DIPINJAM, barang.getStatus()));
+        assertEquals(Barang.StatusBarang.DIPINJAM, status(tersedia));
+    }
+
+    @Test
+    void listsEveryContestedBarangAndReservesNothing() {
+        ConflictException ex = assertThrows(ConflictException.class, () -> transactionTemplate.execute(tx ->
+                barangReservations.reserve(List.of(dirawat.getId(), tersedia.getId(), dipinjam.getId()),
+                        Barang.StatusBarang.DIPINJAM, "peminjaman", "admin")));
+
+        assertEquals(List.of(
+                new BarangConflictResponse.Contested(dipinjam.getId(), dipinjam.getNamaBarang(), "DIPINJAM"),
+                new BarangConflictResponse.Contested(dirawat.getId(), dirawat.getNamaBarang(), "DIRAWAT")),
+                contested(ex));
+        assertEquals(Barang.StatusBarang.TERSEDIA, status(tersedia));
+    }
+
+    @Test
+    void reportsMissingBarangBeforeConflicts() {
+        long missing = Long.MAX_VALUE;
+        ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
+                () -> transactionTemplate.execute(tx -> barangReservations.reserve(
+                        List.of(dipinjam.getId(), missing), Barang.StatusBarang.DIPINJAM, "peminjaman", "admin")));
+
+        assertEquals("Barang ID " + missing + " tidak ditemukan", ex.getMessage());
+    }
+
+    @Test
+    void rejectsDuplicateIds() {
+        assertThrows(BadRequestException.class, () -> transactionTemplate.execute(tx -> barangReservations.reserve(
+                List.of(tersedia.getId(), tersedia.getId()), Barang.StatusBarang.DIPINJAM, "peminjaman", "admin")));
+    }
+
+    @Test
+    void loserOfRaceIsRejectedAfterWaitingForLocks() throws Exception {
+        Barang other = barang("D", Barang.StatusBarang.TERSEDIA);
+        CountDownLatch winnerReserved = new CountDownLatch(1);
+        CountDownLatch releaseWinner = new CountDownLatch(1);
+
+        CompletableFuture<Void> winner = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                tx -> {
+                    barangReservations.reserve(List.of(tersedia.getId()), Barang.StatusBarang.DIRAWAT,
+                            "perawatan", "winner");
+                    winnerReserved.countDown();
+                    await(releaseWinner);
+                }));
+        await(winnerReserved);
+
+        CompletableFuture<Map<Long, Barang>> loser = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                tx -> barangReservations.reserve(List.of(tersedia.getId(), other.getId()),
+                        Barang.StatusBarang.DIPINJAM, "peminjaman", "loser")));
+        awaitLockWait();
+        releaseWinner.countDown();
+        winner.get(10, TimeUnit.SECONDS);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> loser.get(10, TimeUnit.SECONDS));
+        ConflictException conflict = assertInstanceOf(ConflictException.class, ex.getCause());
+        assertEquals(List.of(new BarangConflictResponse.Contested(tersedia.getId(), tersedia.getNamaBarang(),
+                "DIRAWAT")), contested(conflict));
+        assertEquals(Barang.StatusBarang.DIRAWAT, status(tersedia));
+        assertEquals(Barang.StatusBarang.TERSEDIA, status(other));
+    }
+
+    /**
+     * Blocks until some backend waits on a row lock held by another transaction.
+     */
+    private void awaitLockWait() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            Integer waiting = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_stat_activity "
+                    + "WHERE datname = current_database() AND wait_event_type = 'Lock'", Integer.class);
+            if (waiting != null && waiting > 0) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("the second reservation never waited for the first one's row locks");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<BarangConflictResponse.Contested> contested(ConflictException ex) {
+        return assertInstanceOf(BarangConflictResponse.class, ex.getDetails()).getContested();
+    }
+
+    private Barang.StatusBarang status(Barang barang) {
+        return Barang.StatusBarang.valueOf(jdbcTemplate.queryForObject(
+                "SELECT status FROM barang WHERE id = ?", String.class, barang.getId()));
+    }
+
+    private Barang barang(String kode, Barang.StatusBarang status) {
+        return barangRepository.save(Barang.builder()
+                .kodeBarang(prefix + kode)
+                .namaBarang("Barang " + prefix + kode)
+                .kondisi(Barang.KondisiBarang.BAIK)
+                .status(status)
+                .build());
+    }
+}
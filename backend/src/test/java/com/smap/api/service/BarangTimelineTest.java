@@ -0,0 +1,120 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.AssetEventResponse;
+import com.smap.api.domain.dto.CursorPagedResponse;
+import com.smap.api.domain.dto.PageCursor;
+import com.smap.api.domain.entity.AssetEvent;
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.exception.BadRequestException;
+import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.repository.AssetEventRepository;
+import com.smap.api.repository.BarangRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The barang timeline pages newest first by (occurred_at, id), so events sharing a timestamp are
+ * neither repeated nor skipped across pages, and a cursor it did not issue is a client error.
+ */
+@SpringBootTest
+@Transactional
+class BarangTimelineTest {
+
+    @Autowired
+    private BarangService barangService;
+
+    @Autowired
+    private BarangRepository barangRepository;
+
+    @Autowired
+    private AssetEventRepository assetEventRepository;
+
+    private Long barangId;
+
+    @BeforeEach
+    void setUp() {
+        barangId = barangRepository.save(Barang.builder()
+                .kodeBarang("TML-" + UUID.randomUUID().toString().substring(0, 8))
+                .namaBarang("Barang timeline")
+                .kondisi(Barang.KondisiBarang.BAIK)
+                .status(Barang.StatusBarang.TERSEDIA)
+                .build()).getId();
+    }
+
+    @Test
+    void pagesThroughEventsNewestFirst() {
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Long> expected = new ArrayList<>();
+        // Three events share a timestamp and straddle a page boundary
+        expected.add(event(base.plusMinutes(2)));
+        Long tiedFirst = event(base.plusMinutes(1));
+        Long tiedSecond = event(base.plusMinutes(1));
+        Long tiedThird = event(base.plusMinutes(1));
+        expected.addAll(List.of(tiedThird, tiedSecond, tiedFirst));
+        expected.add(event(base));
+
+        List<Long> seen = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        CursorPagedResponse<AssetEventResponse> page;
+        do {
+            page = barangService.getTimeline(barangId, after, 2);
+            page.getContent().forEach(event -> seen.add(event.getId()));
+            after = page.getNextCursor();
+            pages++;
+        } while (!page.isLast());
+
+        assertEquals(expected, seen);
+        assertEquals(3, pages);
+        assertNull(after);
+    }
+
+    @Test
+    void emptyTimelineIsTheLastPage() {
+        CursorPagedResponse<AssetEventResponse> page = barangService.getTimeline(barangId, null, 20);
+
+        assertTrue(page.getContent().isEmpty());
+        assertTrue(page.isLast());
+    }
+
+    @Test
+    void foreignOrMalformedCursorIsRejected() {
+        event(LocalDateTime.now());
+        String otherSort = new PageCursor("kodeBarang", Sort.Direction.DESC, "X", 1L).encode();
+        String badTimestamp = new PageCursor("occurredAt", Sort.Direction.DESC, "kemarin", 1L).encode();
+
+        assertThrows(BadRequestException.class, () -> barangService.getTimeline(barangId, "bukan-cursor", 2));
+        assertThrows(BadRequestException.class, () -> barangService.getTimeline(barangId, otherSort, 2));
+        assertThrows(BadRequestException.class, () -> barangService.getTimeline(barangId, badTimestamp, 2));
+        assertFalse(barangService.getTimeline(barangId, null, 2).getContent().isEmpty());
+    }
+
+    @Test
+    void unknownBarangIsNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> barangService.getTimeline(-1L, null, 20));
+    }
+
+    private Long event(LocalDateTime occurredAt) {
+        return assetEventRepository.saveAndFlush(AssetEvent.builder()
+                .barangId(barangId)
+                .eventType(AssetEvent.EventType.DIUBAH)
+                .occurredAt(occurredAt)
+                .build()).getId();
+    }
+}
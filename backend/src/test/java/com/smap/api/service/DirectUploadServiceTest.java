@@ -0,0 +1,219 @@
+package com.smap.api.service;
+
+import com.smap.api.exception.BadRequestException;
+import com.smap.api.exception.ResourceNotFoundException;
+import com.smap.api.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Completing a direct upload must only publish an object whose size, magic bytes and SHA-256
+ * match what was declared; any mismatch discards the staged upload and is a client error.
+ */
+@ExtendWith(MockitoExtension.class)
+class DirectUploadServiceTest {
+
+    private static final String USERNAME = "pegawai";
+    private static final String STAGING_KEY = "incoming/staged.jpg";
+    private static final byte[] JPEG = jpeg(64);
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private S3Presigner s3Presigner;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private StoredObjects storedObjects;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private DirectUploadService service;
+    private UUID uploadId;
+
+    @BeforeEach
+    void setUp() {
+        service = new DirectUploadService(s3Client, s3Presigner, fileStorageService, storedObjects, jdbcTemplate,
+                "smap-assets", DataSize.ofMegabytes(50));
+        uploadId = UUID.randomUUID();
+    }
+
+    @Test
+    void publishesMatchingUpload() {
+        String sha256 = sha256(JPEG);
+        pending("image/jpeg", JPEG.length, sha256);
+        stored(JPEG, checksum(JPEG));
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), any(Object[].class))).thenReturn(List.of(1));
+        when(fileStorageService.objectUrl(sha256 + ".jpg")).thenReturn("http://minio/smap-assets/" + sha256 + ".jpg");
+
+        assertEquals("http://minio/smap-assets/" + sha256 + ".jpg", service.complete(uploadId.toString(), USERNAME));
+        verify(s3Client).copyObject(any(CopyObjectRequest.class));
+        verify(storedObjects).register(sha256 + ".jpg", sha256, "image/jpeg", JPEG.length);
+        verify(s3Client).deleteObject(any(DeleteObjectRequest.class));
+    }
+
+    @Test
+    void keepsUploadForRetryWhenStoreFailsDuringCopy() {
+        pending("image/jpeg", JPEG.length, sha256(JPEG));
+        stored(JPEG, checksum(JPEG));
+        when(s3Client.copyObject(any(CopyObjectRequest.class)))
+                .thenThrow(SdkClientException.create("connection reset"));
+
+        assertThrows(ServiceUnavailableException.class, () -> service.complete(uploadId.toString(), USERNAME));
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Integer.class), any(Object[].class));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(s3Client, never()).deleteObject(any(DeleteObjectRequest.class));
+        verify(storedObjects, never()).register(anyString(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void rejectsMissingObject() {
+        pending("image/jpeg", JPEG.length, sha256(JPEG));
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+
+        assertRejected("File belum diunggah ke penyimpanan");
+    }
+
+    @Test
+    void rejectsSizeMismatch() {
+        pending("image/jpeg", JPEG.length + 1, sha256(JPEG));
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().contentLength((long) JPEG.length).build());
+
+        assertRejected("Ukuran file tidak sesuai dengan yang diajukan");
+    }
+
+    @Test
+    void rejectsContentThatIsNotTheDeclaredType() {
+        byte[] png = Arrays.copyOf(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, JPEG.length);
+        pending("image/jpeg", png.length, sha256(png));
+        stored(png, checksum(png));
+
+        assertRejected("Isi file tidak sesuai dengan tipe image/jpeg");
+    }
+
+    @Test
+    void rejectsChecksumMismatch() {
+        pending("image/jpeg", JPEG.length, sha256(jpeg(32)));
+        stored(JPEG, checksum(JPEG));
+
+        assertRejected("Hash SHA-256 file tidak sesuai dengan yang diajukan");
+    }
+
+    @Test
+    void hashesObjectWhenStoreOnlyReportsMultipartChecksum() {
+        pending("image/jpeg", JPEG.length, sha256(jpeg(32)));
+        stored(JPEG, checksum(JPEG) + "-3");
+
+        assertRejected("Hash SHA-256 file tidak sesuai dengan yang diajukan");
+    }
+
+    @Test
+    void unknownUploadIsNotFound() {
+        assertThrows(ResourceNotFoundException.class, () -> service.complete("bukan-uuid", USERNAME));
+        verifyNoInteractions(s3Client);
+    }
+
+    private void assertRejected(String message) {
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> service.complete(uploadId.toString(), USERNAME));
+        assertEquals(message, ex.getMessage());
+        verify(jdbcTemplate).update("DELETE FROM pending_upload WHERE id = ?", uploadId);
+        verify(s3Client).deleteObject(DeleteObjectRequest.builder().bucket("smap-assets").key(STAGING_KEY).build());
+        verify(s3Client, never()).copyObject(any(CopyObjectRequest.class));
+        verifyNoInteractions(storedObjects, fileStorageService);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void pending(String contentType, long size, String sha256) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("staging_key")).thenReturn(STAGING_KEY);
+            when(rs.getString("content_type")).thenReturn(contentType);
+            when(rs.getLong("size_bytes")).thenReturn(size);
+            when(rs.getString("sha256")).thenReturn(sha256);
+            return List.of(invocation.getArgument(1, RowMapper.class).mapRow(rs, 0));
+        });
+    }
+
+    private void stored(byte[] content, String checksum) {
+        when(s3Client.headObject(any(HeadObjectRequest.class))).thenReturn(HeadObjectResponse.builder()
+                .contentLength((long) content.length).checksumSHA256(checksum).build());
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            byte[] body = request.range() != null ? Arrays.copyOf(content, 12) : content;
+            return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                    AbortableInputStream.create(new ByteArrayInputStream(body)));
+        });
+    }
+
+    private static byte[] jpeg(int length) {
+        byte[] content = new byte[length];
+        content[0] = (byte) 0xFF;
+        content[1] = (byte) 0xD8;
+        content[2] = (byte) 0xFF;
+        for (int i = 3; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(digest(content));
+    }
+
+    private static String checksum(byte[] content) {
+        return Base64.getEncoder().encodeToString(digest(content));
+    }
+
+    private static byte[] digest(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Renditions landing after a read change the barang ETag for If-None-Match but must not fail an
+ * If-Match update that carries the tag from before.
+ */
+class EntityTagsTest {
+
+    @Test
+    void renditionsChangeTagButNotIfMatch() {
+        Barang barang = barang(3L);
+        String beforeRenditions = EntityTags.weak(EntityTags.of(barang));
+        barang.setPhotoThumbUrl("http://minio/smap-assets/abc-thumb.webp");
+        barang.setPhotoMediumUrl("http://minio/smap-assets/abc-medium.webp");
+        String afterRenditions = EntityTags.weak(EntityTags.of(barang));
+
+        assertNotEquals(beforeRenditions, afterRenditions);
+        assertDoesNotThrow(() -> EntityTags.checkIfMatch(beforeRenditions, barang));
+        assertDoesNotThrow(() -> EntityTags.checkIfMatch(afterRenditions, barang));
+    }
+
+    @Test
+    void newerVersionFailsIfMatch() {
+        Barang barang = barang(3L);
+        barang.setPhotoThumbUrl("http://minio/smap-assets/abc-thumb.webp");
+        barang.setPhotoMediumUrl("http://minio/smap-assets/abc-medium.webp");
+        String stale = EntityTags.weak(EntityTags.of(barang));
+        barang.setVersion(4L);
+
+        assertThrows(PreconditionFailedException.class, () -> EntityTags.checkIfMatch(stale, barang));
+        assertThrows(PreconditionFailedException.class, () -> EntityTags.checkIfMatch("W/\"7-3\"", barang));
+        assertDoesNotThrow(() -> EntityTags.checkIfMatch(null, barang));
+    }
+
+    private static Barang barang(Long version) {
+        Barang barang = Barang.builder().id(7L).build();
+        barang.setVersion(version);
+        return barang;
+    }
+}
@@ -0,0 +1,137 @@
+package com.smap.api.service;
+
+import com.smap.api.exception.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A retried request with the same Idempotency-Key gets the first response back without running
+ * again; reusing the key for a different request is rejected.
+ */
+@SpringBootTest
+class IdempotencyServiceTest {
+
+    private static final String ENDPOINT = "peminjaman";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private String username;
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        username = "idem-" + UUID.randomUUID();
+        key = UUID.randomUUID().toString();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE username = ?", username);
+        redisTemplate.delete(redisKey());
+    }
+
+    @Test
+    void replaysFirstResponse() {
+        IdempotencyService.Result<Created> first = execute(Map.of("barangIds", "1,2"));
+        IdempotencyService.Result<Created> retry = execute(Map.of("barangIds", "1,2"));
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.response(), retry.response());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void replaysFromDatabaseWhenCacheIsEmpty() {
+        IdempotencyService.Result<Created> first = execute(Map.of("barangIds", "1,2"));
+        assertTrue(redisTemplate.delete(redisKey()));
+
+        IdempotencyService.Result<Created> retry = execute(Map.of("barangIds", "1,2"));
+
+        assertTrue(retry.replayed());
+        assertEquals(first.response(), retry.response());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void storesBodyAsTheHttpLayerWritesIt() {
+        IdempotencyService.Result<Created> first = execute(Map.of("barangIds", "1,2"));
+
+        String body = jdbcTemplate.queryForObject("SELECT response_body FROM idempotency_key WHERE username = ?",
+                String.class, username);
+        assertEquals(jsonMapper.writeValueAsString(first.response()), body);
+        assertTrue(body.contains("\"tglPinjam\":\"" + first.response().tglPinjam() + "\""));
+    }
+
+    @Test
+    void rejectsKeyReusedForDifferentRequest() {
+        execute(Map.of("barangIds", "1,2"));
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> execute(Map.of("barangIds", "3")));
+        assertEquals(IdempotencyService.HEADER + " sudah digunakan untuk permintaan yang berbeda", ex.getMessage());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedOperationReleasesKey() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(key, username, ENDPOINT,
+                Map.of("barangIds", "1,2"), Created.class, () -> {
+                    throw new IllegalStateException("gagal");
+                }));
+
+        IdempotencyService.Result<Created> retry = execute(Map.of("barangIds", "1,2"));
+        assertFalse(retry.replayed());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void runsEveryTimeWithoutKey() {
+        idempotencyService.execute(null, username, ENDPOINT, Map.of(), Created.class, this::create);
+        idempotencyService.execute(" ", username, ENDPOINT, Map.of(), Created.class, this::create);
+
+        assertEquals(2, runs.get());
+    }
+
+    private IdempotencyService.Result<Created> execute(Object request) {
+        return idempotencyService.execute(key, username, ENDPOINT, request, Created.class, this::create);
+    }
+
+    private Created create() {
+        int run = runs.incrementAndGet();
+        return new Created((long) run, "PMJ-" + run, LocalDate.of(2026, 1, run));
+    }
+
+    private String redisKey() {
+        return "smap:idempotency:" + ENDPOINT + ":" + username + ":" + key;
+    }
+
+    record Created(Long id, String noRegister, LocalDate tglPinjam) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.smap.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Uploads are typed by their content, never by the declared content type or file name.
+ */
+class ImageTypeTest {
+
+    private static final byte[] JPEG = bytes(0xFF, 0xD8, 0xFF, 0xE0, 0x00, 0x10, 'J', 'F', 'I', 'F', 0x00, 0x01);
+    private static final byte[] PNG = bytes(0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0x00, 0x00, 0x00, 0x0D);
+    private static final byte[] WEBP = bytes('R', 'I', 'F', 'F', 0x24, 0x00, 0x00, 0x00, 'W', 'E', 'B', 'P');
+
+    @Test
+    void recognisesSupportedSignatures() {
+        assertEquals(ImageType.JPEG, ImageType.sniff(JPEG));
+        assertEquals(ImageType.PNG, ImageType.sniff(PNG));
+        assertEquals(ImageType.WEBP, ImageType.sniff(WEBP));
+    }
+
+    @Test
+    void rejectsOtherContent() {
+        assertNull(ImageType.sniff("GIF89a\u0001\u0000\u0001\u0000\u0000\u0000".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(ImageType.sniff("%PDF-1.7\n%âã".getBytes(StandardCharsets.ISO_8859_1)));
+        assertNull(ImageType.sniff("<svg xmlns=".getBytes(StandardCharsets.US_ASCII)));
+        // A RIFF container that is not WebP, e.g. a WAV file
+        assertNull(ImageType.sniff(bytes('R', 'I', 'F', 'F', 0x24, 0x00, 0x00, 0x00, 'W', 'A', 'V', 'E')));
+    }
+
+    @Test
+    void rejectsTruncatedHeaders() {
+        assertNull(ImageType.sniff(new byte[0]));
+        assertNull(ImageType.sniff(bytes(0xFF, 0xD8)));
+        assertNull(ImageType.sniff(bytes(0x89, 'P', 'N', 'G', '\r', '\n', 0x1A)));
+        assertNull(ImageType.sniff(bytes('R', 'I', 'F', 'F', 0x24, 0x00, 0x00, 0x00, 'W', 'E', 'B')));
+    }
+
+    @Test
+    void mapsContentTypesIgnoringCase() {
+        assertEquals(ImageType.JPEG, ImageType.fromContentType("IMAGE/JPEG"));
+        assertEquals(ImageType.WEBP, ImageType.fromContentType("image/webp"));
+        assertNull(ImageType.fromContentType("image/gif"));
+        assertNull(ImageType.fromContentType(null));
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,66 @@
+package com.smap.api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reports are stored under the configured directory and nothing outside it is handed out or deleted.
+ */
+class LocalReportStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private Path root;
+    private LocalReportStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = dir.resolve("reports");
+        storage = new LocalReportStorage(root.toString());
+        storage.init();
+    }
+
+    @Test
+    void storedReportIsServedFromTheReportDirectory() throws IOException {
+        Path output = Files.writeString(dir.resolve("output.csv"), "kode,nama\n");
+
+        storage.store("laporan-1-barang_csv.csv", output, "text/csv");
+
+        Optional<Path> file = storage.localFile("laporan-1-barang_csv.csv");
+        assertTrue(file.isPresent());
+        assertTrue(file.get().startsWith(root));
+        assertArrayEquals(Files.readAllBytes(output), Files.readAllBytes(file.get()));
+    }
+
+    @Test
+    void keysOutsideTheReportDirectoryAreNotServed() throws IOException {
+        Files.writeString(dir.resolve("secret.txt"), "secret");
+
+        assertFalse(storage.localFile("../secret.txt").isPresent());
+        assertFalse(storage.localFile("laporan-2-barang_csv.csv").isPresent());
+    }
+
+    @Test
+    void deleteRemovesOnlyFilesInTheReportDirectory() throws IOException {
+        Path output = Files.writeString(dir.resolve("output.csv"), "kode,nama\n");
+        storage.store("laporan-3-barang_csv.csv", output, "text/csv");
+
+        storage.delete("laporan-3-barang_csv.csv");
+        storage.delete("../output.csv");
+        storage.delete("laporan-4-barang_csv.csv");
+
+        assertFalse(storage.localFile("laporan-3-barang_csv.csv").isPresent());
+        assertTrue(Files.exists(output));
+    }
+}
@@ -0,0 +1,165 @@
+package com.smap.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The cache stays under its size cap by dropping the least recently read objects, and cached
+ * copies go away once the object is deleted from the store, on this node and on its peers.
+ */
+@ExtendWith(MockitoExtension.class)
+class ObjectCacheTest {
+
+    private static final String HASH = "a".repeat(64);
+    private static final String KEY = HASH + ".pdf";
+    private static final String OTHER_HASH = "b".repeat(64);
+    private static final String OTHER_KEY = OTHER_HASH + ".jpg";
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private StoredObjects storedObjects;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @TempDir
+    Path dir;
+
+    private ObjectCache objectCache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        objectCache = cache(1024 * 1024);
+    }
+
+    @Test
+    void loadDropsOldestFilesOverTheCap() throws IOException {
+        Path oldest = cachedFile("1", 3);
+        Path older = cachedFile("2", 2);
+        Path old = cachedFile("3", 1);
+
+        cache(1000);
+
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(older));
+        assertTrue(Files.exists(old));
+    }
+
+    @Test
+    void leastRecentlyReadObjectIsEvictedFirst() throws IOException {
+        Path oldest = cachedFile("1", 3);
+        Path older = cachedFile("2", 2);
+        Path old = cachedFile("3", 1);
+        objectCache = cache(1200);
+        stubStore();
+
+        objectCache.get("1".repeat(64) + ".jpg");
+        objectCache.get(KEY);
+
+        assertTrue(Files.exists(oldest), "read just now");
+        assertFalse(Files.exists(older));
+        assertTrue(Files.exists(old));
+    }
+
+    @Test
+    void objectReadWithinTheGracePeriodIsKeptOverTheCap() throws IOException {
+        objectCache = cache(4);
+        stubStore();
+
+        Path cached = objectCache.get(KEY).path();
+
+        assertTrue(Files.exists(cached));
+    }
+
+    @Test
+    void deletedObjectIsDroppedAndBroadcast() {
+        stubStore();
+        Path cached = objectCache.get(KEY).path();
+
+        objectCache.onObjectsDeleted(new FileStorageService.ObjectsDeleted(List.of(KEY)));
+
+        assertFalse(Files.exists(cached));
+        verify(redisTemplate).convertAndSend(eq(ObjectCache.EVICTIONS_CHANNEL), contains(KEY));
+        objectCache.get(KEY);
+        verify(fileStorageService, times(2)).openObject(KEY);
+    }
+
+    @Test
+    void objectDeletedOnAPeerIsDropped() {
+        stubStore();
+        Path cached = objectCache.get(KEY).path();
+        Path other = objectCache.get(OTHER_KEY).path();
+
+        objectCache.onMessage(new DefaultMessage(ObjectCache.EVICTIONS_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                ("peer|" + KEY + ",unknown.jpg").getBytes(StandardCharsets.UTF_8)), null);
+
+        assertFalse(Files.exists(cached));
+        assertTrue(Files.exists(other));
+    }
+
+    @Test
+    void reconcileDropsObjectsNoLongerInTheStore() {
+        stubStore();
+        Path cached = objectCache.get(KEY).path();
+        Path other = objectCache.get(OTHER_KEY).path();
+        when(storedObjects.findExistingHashes(any())).thenReturn(Set.of(OTHER_HASH));
+
+        objectCache.reconcile();
+
+        assertFalse(Files.exists(cached));
+        assertTrue(Files.exists(other));
+    }
+
+    private ObjectCache cache(long maxBytes) throws IOException {
+        ObjectCache cache = new ObjectCache(fileStorageService, storedObjects, redisTemplate, listenerContainer,
+                new SimpleMeterRegistry(), dir.toString(), maxBytes, 1000);
+        cache.load();
+        return cache;
+    }
+
+    private void stubStore() {
+        when(fileStorageService.openObject(anyString()))
+                .thenAnswer(invocation -> new ByteArrayInputStream("berita acara".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // A 400-byte object cached by an earlier run, last read the given number of hours ago
+    private Path cachedFile(String digit, int hoursAgo) throws IOException {
+        Path file = Files.write(dir.resolve(digit.repeat(64) + ".jpg"), new byte[400]);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(hoursAgo, ChronoUnit.HOURS)));
+        return file;
+    }
+}
@@ -0,0 +1,111 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.dto.ReportJobRequest;
+import com.smap.api.domain.entity.ReportJob;
+import com.smap.api.repository.ReportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Report jobs run to a downloadable file on the local storage, orphaned ones are picked up again
+ * and expired ones are removed together with their file.
+ */
+@SpringBootTest(properties = {"smap.reports.storage=local", "smap.reports.local-dir=target/test-reports"})
+class ReportJobLifecycleTest {
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private ReportJobRepository reportJobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> jobIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        jobIds.forEach(reportJobRepository::deleteById);
+    }
+
+    @Test
+    void submittedJobFinishesWithADownloadableFile() throws Exception {
+        ReportJob job = awaitFinished(submit());
+
+        assertEquals(ReportJob.StatusJob.SELESAI, job.getStatus(), job.getErrorMessage());
+        ReportJobService.ReportDownload download = reportJobService.download(job.getId());
+        assertNotNull(download.file());
+        assertTrue(Files.readString(download.file()).contains("No Register"), "CSV has its header");
+    }
+
+    @Test
+    void expiredJobIsPurgedWithItsFile() throws Exception {
+        ReportJob job = awaitFinished(submit());
+        Path file = reportJobService.download(job.getId()).file();
+        jdbcTemplate.update("UPDATE report_job SET finished_at = finished_at - INTERVAL '30 days' WHERE id = ?",
+                job.getId());
+
+        reportJobService.purgeExpired();
+
+        assertFalse(reportJobRepository.existsById(job.getId()));
+        assertFalse(Files.exists(file));
+        jobIds.remove(job.getId());
+    }
+
+    @Test
+    void orphanedQueuedJobIsRequeued() throws Exception {
+        ReportJob job = reportJobRepository.saveAndFlush(ReportJob.builder()
+                .reportType(ReportJob.ReportType.PEMINJAMAN_CSV)
+                .params("from=&to=&bidang=" + UUID.randomUUID())
+                .dataVersion("test")
+                .dedupKey(UUID.randomUUID().toString())
+                .status(ReportJob.StatusJob.ANTRE)
+                .build());
+        jobIds.add(job.getId());
+        // Left behind by a node that went away before handing it to its workers
+        jdbcTemplate.update("UPDATE report_job SET created_at = created_at - INTERVAL '1 hour', "
+                + "updated_at = updated_at - INTERVAL '1 hour' WHERE id = ?", job.getId());
+
+        reportJobService.recoverOrphans();
+
+        assertEquals(ReportJob.StatusJob.SELESAI, awaitFinished(job.getId()).getStatus());
+    }
+
+    private Long submit() {
+        ReportJobRequest request = new ReportJobRequest();
+        request.setReportType(ReportJob.ReportType.PEMINJAMAN_CSV);
+        // A bidang nobody has keeps the report empty and the job clear of de-duplication
+        request.setBidang(UUID.randomUUID().toString());
+        Long id = reportJobService.submit(request).getId();
+        jobIds.add(id);
+        return id;
+    }
+
+    private ReportJob awaitFinished(Long id) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            ReportJob job = reportJobRepository.findById(id).orElseThrow();
+            if (job.getStatus() == ReportJob.StatusJob.SELESAI || job.getStatus() == ReportJob.StatusJob.GAGAL) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        fail("Report job " + id + " did not finish");
+        return null;
+    }
+}
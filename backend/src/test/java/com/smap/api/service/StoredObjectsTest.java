@@ -0,0 +1,129 @@
+package com.smap.api.service;
+
+import com.smap.api.exception.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * An object is only swept while no row references it; references move with attach and detach.
+ */
+@SpringBootTest
+class StoredObjectsTest {
+
+    private static final int LIMIT = 100_000;
+
+    @Autowired
+    private StoredObjects storedObjects;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String sha256;
+    private String key;
+    private Timestamp idleSince;
+
+    @BeforeEach
+    void setUp() {
+        // 64 hex digits, shaped like the content-addressed keys uploads get
+        sha256 = (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+        key = sha256 + ".jpg";
+        // Everything registered by the test counts as idle
+        idleSince = Timestamp.valueOf(LocalDateTime.now().plusMinutes(1));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM stored_object WHERE object_key = ?", key);
+    }
+
+    @Test
+    void referencedObjectIsNotSwept() {
+        storedObjects.register(key, sha256, "image/jpeg", 10);
+        assertTrue(storedObjects.findUnreferenced(idleSince, LIMIT).contains(key));
+
+        fileStorageService.attach(fileStorageService.objectUrl(key));
+        fileStorageService.attach(fileStorageService.objectUrl(key));
+        assertEquals(2, refCount());
+        assertFalse(storedObjects.findUnreferenced(idleSince, LIMIT).contains(key));
+        assertFalse(storedObjects.delete(key, idleSince, () -> {
+            throw new AssertionError("a referenced object must not be deleted");
+        }));
+
+        fileStorageService.detach(fileStorageService.objectUrl(key));
+        assertFalse(storedObjects.findUnreferenced(idleSince, LIMIT).contains(key));
+        fileStorageService.detach(fileStorageService.objectUrl(key));
+        assertTrue(storedObjects.findUnreferenced(idleSince, LIMIT).contains(key));
+    }
+
+    @Test
+    void detachNeverGoesBelowZero() {
+        storedObjects.register(key, sha256, "image/jpeg", 10);
+
+        fileStorageService.detach(fileStorageService.objectUrl(key));
+
+        assertEquals(0, refCount());
+    }
+
+    @Test
+    void sweepDeletesUnreferencedObjectOnce() {
+        storedObjects.register(key, sha256, "image/jpeg", 10);
+        AtomicInteger deletes = new AtomicInteger();
+
+        assertTrue(storedObjects.delete(key, idleSince, deletes::incrementAndGet));
+        assertFalse(storedObjects.delete(key, idleSince, deletes::incrementAndGet));
+
+        assertEquals(1, deletes.get());
+        assertFalse(storedObjects.touch(key));
+    }
+
+    @Test
+    void sweepSkipsObjectTouchedDuringGracePeriod() {
+        storedObjects.register(key, sha256, "image/jpeg", 10);
+
+        Timestamp beforeRegistration = Timestamp.valueOf(LocalDateTime.now().minusMinutes(1));
+        assertFalse(storedObjects.findUnreferenced(beforeRegistration, LIMIT).contains(key));
+        assertFalse(storedObjects.delete(key, beforeRegistration, () -> {
+            throw new AssertionError("an object inside its grace period must not be deleted");
+        }));
+    }
+
+    @Test
+    void existingHashesLeaveOutDeletedObjects() {
+        String deleted = "0".repeat(64);
+        storedObjects.register(key, sha256, "image/jpeg", 10);
+
+        assertEquals(Set.of(sha256), storedObjects.findExistingHashes(List.of(sha256, deleted)));
+    }
+
+    @Test
+    void attachRejectsUnknownObject() {
+        String url = fileStorageService.objectUrl(key);
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> fileStorageService.attach(url));
+        assertEquals("File belum diverifikasi atau sudah kedaluwarsa, unggah ulang file", ex.getMessage());
+    }
+
+    private int refCount() {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM stored_object WHERE object_key = ?",
+                Integer.class, key);
+    }
+}
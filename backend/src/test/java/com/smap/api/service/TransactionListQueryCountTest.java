@@ -0,0 +1,172 @@
+package com.smap.api.service;
+
+import com.smap.api.domain.entity.Barang;
+import com.smap.api.domain.entity.Peminjaman;
+import com.smap.api.domain.entity.PeminjamanDetail;
+import com.smap.api.domain.entity.Perawatan;
+import com.smap.api.domain.entity.PerawatanDetail;
+import com.smap.api.domain.entity.User;
+import com.smap.api.repository.BarangRepository;
+import com.smap.api.repository.PeminjamanRepository;
+import com.smap.api.repository.PerawatanRepository;
+import com.smap.api.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The list and history endpoints must cost the same number of statements whether a page holds
+ * two transactions or ten, each with several detail lines.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class TransactionListQueryCountTest {
+
+    private static final int TRANSACTIONS = 10;
+    private static final int DETAILS_PER_TRANSACTION = 5;
+
+    @Autowired
+    private PeminjamanService peminjamanService;
+
+    @Autowired
+    private PerawatanService perawatanService;
+
+    @Autowired
+    private BarangService barangService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BarangRepository barangRepository;
+
+    @Autowired
+    private PeminjamanRepository peminjamanRepository;
+
+    @Autowired
+    private PerawatanRepository perawatanRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User admin;
+    private Barang hotBarang;
+
+    @BeforeEach
+    void seed() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        admin = userRepository.save(User.builder()
+                .name("Admin " + suffix)
+                .username("admin-" + suffix)
+                .email("admin-" + suffix + "@smap.test")
+                .password("x")
+                .role(User.Role.ADMIN)
+                .build());
+        hotBarang = barang("HOT-" + suffix);
+
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            List<Barang> items = new ArrayList<>(List.of(hotBarang));
+            for (int j = 1; j < DETAILS_PER_TRANSACTION; j++) {
+                items.add(barang("QC-" + suffix + "-" + i + "-" + j));
+            }
+
+            Peminjaman peminjaman = Peminjaman.builder()
+                    .noRegister("PMJ-QC-" + suffix + "-" + i)
+                    .peminjam(admin)
+                    .keperluan("Query count")
+                    .tglPinjam(LocalDate.now())
+                    .status(Peminjaman.StatusPeminjaman.DIPINJAM)
+                    .build();
+            Perawatan perawatan = Perawatan.builder()
+                    .noRegister("PRW-QC-" + suffix + "-" + i)
+                    .hal("Query count")
+                    .diajukanOleh(admin)
+                    .tglService(LocalDate.now())
+                    .status(Perawatan.StatusPerawatan.PERAWATAN)
+                    .build();
+            for (Barang barang : items) {
+                peminjaman.getDetailBarang().add(PeminjamanDetail.builder()
+                        .peminjaman(peminjaman)
+                        .barang(barang)
+                        .kondisiPinjam(Barang.KondisiBarang.BAIK)
+                        .build());
+                perawatan.getDetailBarang().add(PerawatanDetail.builder()
+                        .perawatan(perawatan)
+                        .barang(barang)
+                        .gejala("-")
+                        .build());
+            }
+            peminjamanRepository.save(peminjaman);
+            perawatanRepository.save(perawatan);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void peminjamanListUsesConstantStatements() {
+        String username = admin.getUsername();
+        assertConstant(size -> peminjamanService.getAllPeminjaman(0, size, "desc", "id", username));
+        assertConstant(size -> peminjamanService.getAllPeminjamanKeyset(null, size, "desc", "id", false, username));
+    }
+
+    @Test
+    void perawatanListUsesConstantStatements() {
+        assertConstant(size -> perawatanService.getAllPerawatan(0, size, "desc", "id"));
+        assertConstant(size -> perawatanService.getAllPerawatanKeyset(null, size, "desc", "id", false));
+    }
+
+    @Test
+    void barangHistoryUsesConstantStatements() {
+        Long barangId = hotBarang.getId();
+        assertConstant(size -> barangService.getHistoryPeminjamanByBarangId(barangId, 0, size));
+        assertConstant(size -> barangService.getHistoryPerawatanByBarangId(barangId, 0, size));
+    }
+
+    private void assertConstant(PageCall call) {
+        long small = statements(call, 2);
+        long full = statements(call, TRANSACTIONS);
+        assertEquals(small, full, "statement count must not grow with the page content");
+        // user lookup, page, count and the fetch of users/details/barang
+        assertTrue(full <= 4, "expected at most 4 statements per page but was " + full);
+    }
+
+    private long statements(PageCall call, int size) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        call.load(size);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Barang barang(String kode) {
+        return barangRepository.save(Barang.builder()
+                .kodeBarang(kode)
+                .namaBarang("Barang " + kode)
+                .kondisi(Barang.KondisiBarang.BAIK)
+                .status(Barang.StatusBarang.TERSEDIA)
+                .build());
+    }
+
+    @FunctionalInterface
+    private interface PageCall {
+        void load(int size);
+    }
+}
@@ -0,0 +1,80 @@
+package com.smap.api.service;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The XLSX export has a bold header row and keeps numbers and dates as typed cells.
+ */
+class XlsxReportWriterTest {
+
+    private static final List<String> HEADER = List.of("Kode Barang", "Nama Barang", "Harga", "Tanggal Perolehan");
+
+    @Test
+    void writesHeaderAndTypedCells() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportWriter writer = new XlsxReportWriter(out, "Barang", HEADER)) {
+            writer.row(List.of("3.10.02.03.003", "Laptop", 15_000_000L, LocalDate.of(2024, 3, 1)));
+            writer.row(Arrays.asList("3.10.02.03.004", null, 2.5, null));
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(1, workbook.getNumberOfSheets());
+            Sheet sheet = workbook.getSheet("Barang");
+            assertEquals(2, sheet.getLastRowNum());
+
+            Row header = sheet.getRow(0);
+            for (int i = 0; i < HEADER.size(); i++) {
+                assertEquals(HEADER.get(i), header.getCell(i).getStringCellValue());
+                assertTrue(workbook.getFontAt(header.getCell(i).getCellStyle().getFontIndex()).getBold());
+            }
+
+            Row first = sheet.getRow(1);
+            assertEquals("3.10.02.03.003", first.getCell(0).getStringCellValue());
+            assertEquals(CellType.NUMERIC, first.getCell(2).getCellType());
+            assertEquals(15_000_000d, first.getCell(2).getNumericCellValue());
+            Cell date = first.getCell(3);
+            assertEquals(LocalDate.of(2024, 3, 1), date.getLocalDateTimeCellValue().toLocalDate());
+            assertEquals("yyyy-mm-dd", date.getCellStyle().getDataFormatString());
+
+            Row second = sheet.getRow(2);
+            assertNull(second.getCell(1));
+            assertEquals(2.5, second.getCell(2).getNumericCellValue());
+        }
+    }
+
+    @Test
+    void closeLeavesTheTargetStreamOpen() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AtomicBoolean closed = new AtomicBoolean();
+        FilterOutputStream out = new FilterOutputStream(bytes) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+
+        new XlsxReportWriter(out, "Barang", HEADER).close();
+
+        assertFalse(closed.get());
+        assertTrue(bytes.size() > 0);
+    }
+}